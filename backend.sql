@@ -80,7 +80,8 @@ CREATE TABLE `cryptocurrencies`  (
   `price_currency` varchar(10) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL,
   `symbol` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL,
   `updated_at` datetime(6) NOT NULL,
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uk_cryptocurrencies_symbol`(`symbol` ASC) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 31 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -101,21 +102,6 @@ INSERT INTO `cryptocurrencies` VALUES (12, '2025-12-16 03:39:48.650493', 'Hyperl
 INSERT INTO `cryptocurrencies` VALUES (13, '2025-12-16 03:39:48.651461', 'Chainlink', 90.320000, 'CNY', 'LINK', '2025-12-16 03:39:48.651461');
 INSERT INTO `cryptocurrencies` VALUES (14, '2025-12-16 03:39:48.652459', 'UNUS SED LEO', 65.070000, 'CNY', 'LEO', '2025-12-16 03:39:48.652459');
 INSERT INTO `cryptocurrencies` VALUES (15, '2025-12-16 03:39:48.653483', 'Monero', 2869.880000, 'CNY', 'XMR', '2025-12-16 03:39:48.653483');
-INSERT INTO `cryptocurrencies` VALUES (16, '2025-12-16 03:46:05.554220', '比特币', 605828.060000, 'CNY', 'BTC', '2025-12-16 03:46:05.554220');
-INSERT INTO `cryptocurrencies` VALUES (17, '2025-12-16 03:46:05.594481', '以太币', 20820.100000, 'CNY', 'ETH', '2025-12-16 03:46:05.594481');
-INSERT INTO `cryptocurrencies` VALUES (18, '2025-12-16 03:46:05.595479', '泰达币', 7.040000, 'CNY', 'USDT', '2025-12-16 03:46:05.595479');
-INSERT INTO `cryptocurrencies` VALUES (19, '2025-12-16 03:46:05.597474', '币安币', 6027.100000, 'CNY', 'BNB', '2025-12-16 03:46:05.597474');
-INSERT INTO `cryptocurrencies` VALUES (20, '2025-12-16 03:46:05.598471', '瑞波币', 13.300000, 'CNY', 'XRP', '2025-12-16 03:46:05.598471');
-INSERT INTO `cryptocurrencies` VALUES (21, '2025-12-16 03:46:05.600466', '美元币', 7.040000, 'CNY', 'USDC', '2025-12-16 03:46:05.600466');
-INSERT INTO `cryptocurrencies` VALUES (22, '2025-12-16 03:46:05.602461', 'Solana', 895.200000, 'CNY', 'SOL', '2025-12-16 03:46:05.602461');
-INSERT INTO `cryptocurrencies` VALUES (23, '2025-12-16 03:46:05.603458', '波场币', 1.960000, 'CNY', 'TRX', '2025-12-16 03:46:05.603458');
-INSERT INTO `cryptocurrencies` VALUES (24, '2025-12-16 03:46:05.605452', '狗狗币', 0.911300, 'CNY', 'DOGE', '2025-12-16 03:46:05.605452');
-INSERT INTO `cryptocurrencies` VALUES (25, '2025-12-16 03:46:05.607448', '艾达币', 2.720000, 'CNY', 'ADA', '2025-12-16 03:46:05.607448');
-INSERT INTO `cryptocurrencies` VALUES (26, '2025-12-16 03:46:05.609443', '比特币现金', 3788.700000, 'CNY', 'BCH', '2025-12-16 03:46:05.609443');
-INSERT INTO `cryptocurrencies` VALUES (27, '2025-12-16 03:46:05.610439', 'Hyperliquid', 192.650000, 'CNY', 'HYPE', '2025-12-16 03:46:05.610439');
-INSERT INTO `cryptocurrencies` VALUES (28, '2025-12-16 03:46:05.611437', 'Chainlink', 90.320000, 'CNY', 'LINK', '2025-12-16 03:46:05.611437');
-INSERT INTO `cryptocurrencies` VALUES (29, '2025-12-16 03:46:05.613431', 'UNUS SED LEO', 65.070000, 'CNY', 'LEO', '2025-12-16 03:46:05.613431');
-INSERT INTO `cryptocurrencies` VALUES (30, '2025-12-16 03:46:05.614429', 'Monero', 2869.880000, 'CNY', 'XMR', '2025-12-16 03:46:05.614429');
 
 -- ----------------------------
 -- Table structure for messages
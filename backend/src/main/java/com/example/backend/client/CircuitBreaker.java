@@ -0,0 +1,98 @@
+package com.example.backend.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 简单的熔断器：连续失败达到阈值后打开，打开期间直接拒绝调用；
+ * 冷却时间过后进入半开状态，只放行一次试探调用，成功则关闭，失败则重新打开
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long rejectedCount;
+    private long openCount;
+
+    public CircuitBreaker(String name, int failureThreshold, long openDurationMs) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+    }
+
+    // 判断本次调用是否放行，不放行时计入拒绝次数
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                openCount++;
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", name);
+        map.put("state", state.name());
+        map.put("consecutiveFailures", consecutiveFailures);
+        map.put("failureThreshold", failureThreshold);
+        map.put("openDurationMs", openDurationMs);
+        map.put("openRemainingMs", state == State.OPEN
+                ? Math.max(0, openDurationMs - (System.currentTimeMillis() - openedAt)) : 0);
+        map.put("openCount", openCount);
+        map.put("rejected", rejectedCount);
+        return map;
+    }
+
+    /**
+     * 熔断打开时抛出的异常
+     */
+    public static class OpenException extends RuntimeException {
+        public OpenException(String name) {
+            super(name + " 熔断中，暂停调用");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.backend.client;
+
+import com.example.backend.common.JsonArrayStreamer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.function.Consumer;
+
+/**
+ * Dify工作流流式响应（response_mode=streaming）的逐行处理器
+ *
+ * 配合 WorkflowHttpClient.postForLines 使用：text_chunk 事件中的文本直接追加给增量解析器，
+ * 输出中的JSON数组每解析出一个元素就回调一次；工作流没有输出text_chunk时，
+ * 在 workflow_finished 事件里从 outputs.text 解析
+ */
+public class DifyWorkflowStream implements Consumer<String> {
+
+    private final ObjectMapper objectMapper;
+    private final JsonArrayStreamer streamer;
+
+    private boolean workflowFinished;
+    private boolean hasText;
+
+    public DifyWorkflowStream(ObjectMapper objectMapper, Consumer<JsonNode> elementConsumer) {
+        this.objectMapper = objectMapper;
+        this.streamer = new JsonArrayStreamer(objectMapper, elementConsumer);
+    }
+
+    // 处理一行SSE数据，只关心 "data:" 行，event/注释/空行直接忽略
+    @Override
+    public void accept(String line) {
+        if (line == null || !line.startsWith("data:")) {
+            return;
+        }
+        String data = line.substring(5).trim();
+        if (data.isEmpty()) {
+            return;
+        }
+        JsonNode event;
+        try {
+            event = objectMapper.readTree(data);
+        } catch (Exception e) {
+            throw new RuntimeException("解析Dify流式事件失败: " + e.getMessage(), e);
+        }
+
+        switch (event.path("event").asText()) {
+            case "text_chunk" -> appendText(event.path("data").path("text").asText());
+            case "workflow_finished" -> {
+                JsonNode result = event.path("data");
+                String status = result.path("status").asText();
+                if (!"succeeded".equals(status)) {
+                    throw new RuntimeException("Dify工作流执行失败: " + status + " " + result.path("error").asText());
+                }
+                // 没有收到流式文本时，使用最终输出
+                if (!streamer.isStarted()) {
+                    appendText(result.path("outputs").path("text").asText());
+                }
+                workflowFinished = true;
+            }
+            case "error" -> throw new RuntimeException("Dify工作流返回错误: " + event.path("message").asText());
+            default -> {
+                // workflow_started / node_started / node_finished / ping 等事件不需要处理
+            }
+        }
+    }
+
+    // 流结束后检查结果是否完整：工作流必须已结束，已开始的数组必须已闭合
+    public void verifyComplete() {
+        if (!workflowFinished) {
+            throw new RuntimeException("Dify流式响应在工作流结束前中断");
+        }
+        if (streamer.isStarted() && !streamer.isFinished()) {
+            throw new RuntimeException("Dify返回的JSON数组不完整，已解析 " + streamer.getElementCount() + " 条");
+        }
+    }
+
+    // 输出中是否包含JSON数组
+    public boolean hasArray() {
+        return streamer.isStarted();
+    }
+
+    // 输出中是否有非空白文本
+    public boolean hasText() {
+        return hasText;
+    }
+
+    public int getElementCount() {
+        return streamer.getElementCount();
+    }
+
+    private void appendText(String text) {
+        if (!text.isBlank()) {
+            hasText = true;
+        }
+        streamer.append(text);
+    }
+}
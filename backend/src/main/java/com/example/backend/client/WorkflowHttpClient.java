@@ -0,0 +1,336 @@
+package com.example.backend.client;
+
+import com.example.backend.common.LatencyHistogram;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 外部工作流（Dify）调用的共享HTTP客户端
+ *
+ * 基于JDK HttpClient异步发送，连接由客户端内部复用；每次调用都有截止时间，
+ * 并发数由信号量限制，可选在首个请求迟迟未返回时发起一次对冲请求，先返回者生效。
+ * 每个调用名称单独统计延迟直方图与成功/失败/超时/拒绝次数
+ */
+@Component
+public class WorkflowHttpClient {
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final Duration requestTimeout;
+    private final long acquireTimeoutMs;
+    private final boolean hedgeEnabled;
+    private final long hedgeDelayMs;
+
+    private static final Object END_OF_STREAM = new Object();
+
+    private final Map<String, EndpointMetrics> metrics = new ConcurrentHashMap<>();
+
+    public WorkflowHttpClient(@Value("${workflow.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+                              @Value("${workflow.http.request-timeout-ms:120000}") long requestTimeoutMs,
+                              @Value("${workflow.http.max-concurrency:4}") int maxConcurrency,
+                              @Value("${workflow.http.acquire-timeout-ms:1000}") long acquireTimeoutMs,
+                              @Value("${workflow.http.executor-threads:4}") int executorThreads,
+                              @Value("${workflow.http.hedge-enabled:false}") boolean hedgeEnabled,
+                              @Value("${workflow.http.hedge-delay-ms:15000}") long hedgeDelayMs) {
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(executorThreads, r -> {
+            Thread thread = new Thread(r, "workflow-http-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeDelayMs = hedgeDelayMs;
+    }
+
+    // 同步调用：在截止时间内返回响应体，超时、被拒绝或非2xx状态码时抛出RuntimeException
+    public String postJson(String name, String url, String apiKey, String body) {
+        try {
+            // 比内部截止时间多留一点余量，正常情况下由内部超时先触发
+            return postJsonAsync(name, url, apiKey, body)
+                    .get(acquireTimeoutMs + requestTimeout.toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("调用" + name + "被中断", e);
+        } catch (ExecutionException e) {
+            throw unwrap(name, e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("调用" + name + "超时", e);
+        }
+    }
+
+    // 异步调用：返回响应体
+    public CompletableFuture<String> postJsonAsync(String name, String url, String apiKey, String body) {
+        EndpointMetrics endpoint = metrics.computeIfAbsent(name, n -> new EndpointMetrics());
+        HttpRequest request = buildRequest(url, apiKey, body);
+
+        if (!acquire(acquireTimeoutMs)) {
+            endpoint.rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("调用" + name + "被拒绝：并发数已达上限 " + maxConcurrency));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        // 整体截止时间：HttpRequest.timeout只约束到收到响应头，响应体读取卡住时由这里兜底
+        result.orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        AtomicInteger outstanding = new AtomicInteger(1);
+        CompletableFuture<HttpResponse<String>> primary = attempt(request, endpoint, result, outstanding, false);
+
+        if (hedgeEnabled) {
+            CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS, executor).execute(() -> {
+                // 首个请求仍未返回且还有空闲并发额度时才发起对冲，不与正常请求抢占
+                if (result.isDone() || !permits.tryAcquire()) {
+                    return;
+                }
+                outstanding.incrementAndGet();
+                endpoint.hedged.incrementAndGet();
+                CompletableFuture<HttpResponse<String>> hedge = attempt(request, endpoint, result, outstanding, true);
+                result.whenComplete((r, e) -> hedge.cancel(true));
+            });
+        }
+        result.whenComplete((r, e) -> primary.cancel(true));
+
+        return result.whenComplete((r, e) -> {
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            if (e == null) {
+                endpoint.success.incrementAndGet();
+                endpoint.latency.record(elapsedMs);
+            } else if (isTimeout(e)) {
+                endpoint.timeout.incrementAndGet();
+            } else {
+                endpoint.failure.incrementAndGet();
+            }
+        });
+    }
+
+    // 流式调用：响应体按行交给lineConsumer处理（在调用线程上执行），处理完一行才继续读取下一行；
+    // 整个调用在截止时间内完成，lineConsumer抛出的异常会中止请求并原样抛出。流式调用不做对冲
+    public void postForLines(String name, String url, String apiKey, String body, Consumer<String> lineConsumer) {
+        EndpointMetrics endpoint = metrics.computeIfAbsent(name, n -> new EndpointMetrics());
+        HttpRequest request = buildRequest(url, apiKey, body);
+        if (!acquire(acquireTimeoutMs)) {
+            endpoint.rejected.incrementAndGet();
+            throw new RuntimeException("调用" + name + "被拒绝：并发数已达上限 " + maxConcurrency);
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + requestTimeout.toNanos();
+        BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+        Flow.Subscriber<String> subscriber = new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription.set(s);
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(String line) {
+                queue.add(line);
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                queue.add(e);
+            }
+
+            @Override
+            public void onComplete() {
+                queue.add(END_OF_STREAM);
+            }
+        };
+        HttpResponse.BodyHandler<Void> handler = info -> info.statusCode() / 100 == 2
+                ? HttpResponse.BodySubscribers.fromLineSubscriber(subscriber)
+                : HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                        errorBody -> {
+                            queue.add(new RuntimeException("HTTP状态码 " + info.statusCode() + "，响应: " + errorBody));
+                            return null;
+                        });
+        CompletableFuture<HttpResponse<Void>> future = httpClient.sendAsync(request, handler);
+        future.whenComplete((response, e) -> {
+            if (e != null) {
+                queue.add(e);
+            }
+        });
+
+        boolean firstLine = true;
+        try {
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                Object item = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (item == null) {
+                    throw new TimeoutException();
+                }
+                if (item == END_OF_STREAM) {
+                    break;
+                }
+                if (item instanceof Throwable e) {
+                    throw unwrap(name, e);
+                }
+                if (firstLine) {
+                    firstLine = false;
+                    endpoint.firstLine.record((System.nanoTime() - start) / 1_000_000);
+                }
+                lineConsumer.accept((String) item);
+                subscription.get().request(1);
+            }
+            endpoint.success.incrementAndGet();
+            endpoint.latency.record((System.nanoTime() - start) / 1_000_000);
+        } catch (TimeoutException e) {
+            endpoint.timeout.incrementAndGet();
+            throw new RuntimeException("调用" + name + "超时", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            endpoint.failure.incrementAndGet();
+            throw new RuntimeException("调用" + name + "被中断", e);
+        } catch (RuntimeException e) {
+            if (isTimeout(e.getCause() != null ? e.getCause() : e)) {
+                endpoint.timeout.incrementAndGet();
+            } else {
+                endpoint.failure.incrementAndGet();
+            }
+            throw e;
+        } finally {
+            Flow.Subscription s = subscription.get();
+            if (s != null) {
+                s.cancel();
+            }
+            future.cancel(true);
+            permits.release();
+        }
+    }
+
+    // 获取各调用名称的延迟直方图与计数，以及当前并发占用
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        metrics.forEach((name, endpoint) -> endpoints.put(name, endpoint.toMap()));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxConcurrency", maxConcurrency);
+        result.put("inFlight", maxConcurrency - permits.availablePermits());
+        result.put("requestTimeoutMs", requestTimeout.toMillis());
+        result.put("hedgeEnabled", hedgeEnabled);
+        result.put("endpoints", endpoints);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // 发送一次请求，第一个成功的结果完成result；所有请求都失败时以最后一个异常完成
+    private CompletableFuture<HttpResponse<String>> attempt(HttpRequest request, EndpointMetrics endpoint,
+                                                            CompletableFuture<String> result,
+                                                            AtomicInteger outstanding, boolean hedge) {
+        CompletableFuture<HttpResponse<String>> future =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        future.whenComplete((response, e) -> {
+            permits.release();
+            if (e == null && response.statusCode() / 100 == 2) {
+                if (result.complete(response.body()) && hedge) {
+                    endpoint.hedgeWins.incrementAndGet();
+                }
+                return;
+            }
+            if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(e != null ? e
+                        : new RuntimeException("HTTP状态码 " + response.statusCode() + "，响应: " + response.body()));
+            }
+        });
+        return future;
+    }
+
+    private HttpRequest buildRequest(String url, String apiKey, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + apiKey)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private boolean acquire(long timeoutMs) {
+        try {
+            return permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof java.net.http.HttpTimeoutException || cause instanceof TimeoutException;
+    }
+
+    private static RuntimeException unwrap(String name, Throwable cause) {
+        if (cause instanceof RuntimeException runtime && !(cause instanceof CompletionException)) {
+            return runtime;
+        }
+        Throwable root = cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+        if (isTimeout(root)) {
+            return new RuntimeException("调用" + name + "超时", root);
+        }
+        return new RuntimeException("调用" + name + "失败: " + root.getMessage(), root);
+    }
+
+    private static class EndpointMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        // 流式调用收到第一行的耗时
+        private final LatencyHistogram firstLine = new LatencyHistogram();
+        private final AtomicLong success = new AtomicLong();
+        private final AtomicLong failure = new AtomicLong();
+        private final AtomicLong timeout = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong hedged = new AtomicLong();
+        private final AtomicLong hedgeWins = new AtomicLong();
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("latency", latency.toMap());
+            map.put("timeToFirstLine", firstLine.toMap());
+            map.put("success", success.get());
+            map.put("failure", failure.get());
+            map.put("timeout", timeout.get());
+            map.put("rejected", rejected.get());
+            map.put("hedged", hedged.get());
+            map.put("hedgeWins", hedgeWins.get());
+            return map;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.backend.common;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 定点数计算内核：金额、数量、价格统一用 long 表示，单位为 10^-6（与数据库 precision=18, scale=6 列一致）
+ *
+ * 重估、汇总等高频计算只在 long 上进行，BigDecimal 只出现在持久化和 JSON 的边界；
+ * 所有舍入都与原 BigDecimal 计算一样采用 HALF_UP，结果逐位相同。
+ * 溢出时抛出 ArithmeticException，由调用方回退到 BigDecimal
+ */
+public final class FixedPoint {
+
+    public static final int SCALE = 6;
+    public static final long ONE = 1_000_000L;
+
+    private static final long TWO_POW_32_MASK = 0xFFFF_FFFFL;
+
+    private FixedPoint() {
+    }
+
+    // BigDecimal转定点数，多余的小数位按HALF_UP舍入（与写入scale=6的列时一致）
+    public static long of(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // BigDecimal转定点数，要求小数位不超过6位，否则抛出ArithmeticException（用于必须与BigDecimal结果逐位一致的计算）
+    public static long ofExact(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, SCALE);
+    }
+
+    // 两个定点数相乘（如 数量×价格），结果按HALF_UP舍入到6位小数；中间结果用128位计算，不会丢精度
+    public static long multiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        // 乘积在long范围内时直接除
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return divideHalfUp(low, ONE);
+        }
+        boolean negative = high < 0;
+        if (negative) {
+            // 128位取反加一得到绝对值
+            low = ~low + 1;
+            high = ~high + (low == 0 ? 1 : 0);
+        }
+        // 按32位分段做长除法，除数10^6小于2^20，每段的被除数都不会超过long
+        long[] limbs = {high >>> 32, high & TWO_POW_32_MASK, low >>> 32, low & TWO_POW_32_MASK};
+        long remainder = 0;
+        for (int i = 0; i < limbs.length; i++) {
+            long current = (remainder << 32) | limbs[i];
+            limbs[i] = current / ONE;
+            remainder = current % ONE;
+        }
+        if (limbs[0] != 0 || limbs[1] != 0 || (limbs[2] & 0x8000_0000L) != 0) {
+            throw new ArithmeticException("定点数乘法溢出");
+        }
+        long quotient = (limbs[2] << 32) | limbs[3];
+        if (remainder * 2 >= ONE) {
+            quotient = Math.addExact(quotient, 1);
+        }
+        return negative ? -quotient : quotient;
+    }
+
+    // 整数除法，按HALF_UP舍入（0.5远离零进位，与BigDecimal一致）
+    public static long divideHalfUp(long numerator, long denominator) {
+        long quotient = numerator / denominator;
+        long remainder = Math.abs(numerator % denominator);
+        long divisor = Math.abs(denominator);
+        if (remainder >= divisor - remainder) {
+            quotient += (numerator < 0) == (denominator < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    /**
+     * 收益率（百分比整数），等价于
+     * (value - costPrice*quantity).divide(costPrice*quantity, 2, HALF_UP).multiply(100)。
+     * 要求 costPrice>0 且 quantity≠0；中间结果超出long时抛出ArithmeticException
+     */
+    public static long profitRatePercent(long value, long costPrice, long quantity) {
+        // 统一放大到12位小数比较：成本=成本价×数量，市值补6位
+        long cost = Math.multiplyExact(costPrice, quantity);
+        long profit = Math.subtractExact(Math.multiplyExact(value, ONE), cost);
+        return divideHalfUp(Math.multiplyExact(profit, 100), cost);
+    }
+
+    /**
+     * 市值恰好等于 数量×现价 时的收益率（百分比整数）：
+     * (q*p - q*c)/(q*c) 与 (p - c)/c 是同一个有理数，舍入结果相同，且不需要数量参与计算。
+     * 要求 costPrice>0
+     */
+    public static long profitRatePercent(long price, long costPrice) {
+        return divideHalfUp(Math.multiplyExact(Math.subtractExact(price, costPrice), 100), costPrice);
+    }
+
+    // 百分比整数转成与原计算相同标度的BigDecimal（如 15 -> 15.00）
+    public static BigDecimal percentToBigDecimal(long percent) {
+        return BigDecimal.valueOf(Math.multiplyExact(percent, 100), 2);
+    }
+
+    /**
+     * 占比 part/total 按HALF_UP保留decimals位小数，返回该标度下的整数（如 decimals=4 时 0.1234 -> 1234）。
+     * 要求 total≠0；中间结果超出long时抛出ArithmeticException
+     */
+    public static long ratio(long part, long total, int decimals) {
+        return divideHalfUp(Math.multiplyExact(part, pow10(decimals)), total);
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result = Math.multiplyExact(result, 10);
+        }
+        return result;
+    }
+}
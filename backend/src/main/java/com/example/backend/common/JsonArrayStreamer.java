@@ -0,0 +1,122 @@
+package com.example.backend.common;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 增量解析文本中的JSON数组：文本可以分多次追加，每解析出一个完整的数组元素就立即回调
+ *
+ * 第一个 '[' 之前的内容（如 ```json 代码块标记）被忽略，外层数组结束后的内容也不再解析；
+ * 底层使用Jackson非阻塞解析器，不需要先拼接出完整文本
+ */
+public class JsonArrayStreamer {
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<JsonNode> elementConsumer;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean started;
+    private boolean finished;
+    private int depth;
+    private TokenBuffer element;
+    private int elementCount;
+
+    public JsonArrayStreamer(ObjectMapper objectMapper, Consumer<JsonNode> elementConsumer) {
+        this.objectMapper = objectMapper;
+        this.elementConsumer = elementConsumer;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new RuntimeException("创建JSON增量解析器失败: " + e.getMessage(), e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    // 追加一段文本并回调其中已完整的数组元素
+    public void append(String text) {
+        if (finished || text == null || text.isEmpty()) {
+            return;
+        }
+        String input = text;
+        if (!started) {
+            int start = input.indexOf('[');
+            if (start < 0) {
+                return;
+            }
+            started = true;
+            input = input.substring(start);
+        }
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            drainTokens();
+        } catch (IOException e) {
+            throw new RuntimeException("增量解析JSON失败: " + e.getMessage(), e);
+        }
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    // 外层数组是否已经完整结束
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getElementCount() {
+        return elementCount;
+    }
+
+    private void drainTokens() throws IOException {
+        JsonToken token;
+        while (!finished && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE) {
+            if (token == null) {
+                finished = true;
+                return;
+            }
+            if (depth == 0) {
+                // 外层数组开始
+                if (token != JsonToken.START_ARRAY) {
+                    throw new RuntimeException("返回的数据不是JSON数组");
+                }
+                depth = 1;
+                continue;
+            }
+            if (depth == 1 && token == JsonToken.END_ARRAY) {
+                finished = true;
+                feeder.endOfInput();
+                return;
+            }
+
+            if (element == null) {
+                element = new TokenBuffer(parser, null);
+            }
+            element.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+            // 回到外层数组这一层，说明一个元素已完整
+            if (depth == 1) {
+                JsonNode node;
+                try (JsonParser elementParser = element.asParser(objectMapper)) {
+                    node = objectMapper.readTree(elementParser);
+                }
+                element = null;
+                elementCount++;
+                elementConsumer.accept(node);
+            }
+        }
+    }
+}
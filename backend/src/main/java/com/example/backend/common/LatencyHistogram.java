@@ -0,0 +1,70 @@
+package com.example.backend.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁延迟直方图（毫秒），桶边界按1-2-5递增，百分位取所在桶的上界
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500,
+            1_000, 2_000, 5_000, 10_000, 20_000, 50_000, 100_000, 200_000, 500_000
+    };
+
+    // 最后一个桶收集超过最大边界的样本
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMs = new AtomicLong();
+    private final AtomicLong maxMs = new AtomicLong();
+
+    // 记录一次耗时
+    public void record(long elapsedMs) {
+        long value = Math.max(0, elapsedMs);
+        int index = 0;
+        while (index < BOUNDS.length && value > BOUNDS[index]) {
+            index++;
+        }
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+        totalMs.addAndGet(value);
+        maxMs.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    // 估算百分位（0-100），无样本时返回0
+    public long percentile(double percent) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percent / 100.0);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i < BOUNDS.length ? Math.min(BOUNDS[i], maxMs.get()) : maxMs.get();
+            }
+        }
+        return maxMs.get();
+    }
+
+    // 导出为接口可直接返回的Map
+    public Map<String, Object> toMap() {
+        long total = count.get();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", total);
+        map.put("meanMs", total == 0 ? 0 : totalMs.get() / total);
+        map.put("p50Ms", percentile(50));
+        map.put("p90Ms", percentile(90));
+        map.put("p99Ms", percentile(99));
+        map.put("maxMs", maxMs.get());
+        return map;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.backend.common;
+
+/**
+ * Largest-Triangle-Three-Buckets 降采样：在保留曲线形状（峰谷）的前提下把点数降到 threshold
+ *
+ * 首尾两点总是保留；其余点均分到 threshold-2 个桶中，每个桶选出与上一个已选点、
+ * 下一个桶平均点构成三角形面积最大的点。x 必须递增
+ */
+public final class Lttb {
+
+    private Lttb() {
+    }
+
+    // 返回被保留点的下标（递增）；点数不超过threshold或threshold小于3时保留全部
+    public static int[] select(double[] x, double[] y, int threshold) {
+        int n = x.length;
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] selected = new int[threshold];
+        int count = 0;
+        selected[count++] = 0;
+
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int previous = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = Math.min((int) Math.floor((bucket + 1) * bucketSize) + 1, n - 1);
+
+            // 下一个桶的平均点（最后一个桶以终点代替）
+            int nextStart = end;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                // 三角形面积的两倍，比较大小时无需除以2
+                double area = Math.abs((x[previous] - avgX) * (y[i] - y[previous])
+                        - (x[previous] - x[i]) * (avgY - y[previous]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            selected[count++] = chosen;
+            previous = chosen;
+        }
+
+        selected[count] = n - 1;
+        return selected;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.backend.common;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按分数排序的名次索引（带子树大小的Treap），单次更新、查名次、定位第N名都是O(log n)，
+ * 取一页数据为O(log n + 页大小)
+ *
+ * 分数相同时按key升序排列，保证名次稳定；非线程安全，由调用方加锁
+ */
+public class RankedIndex<K extends Comparable<K>> {
+
+    private final Map<K, BigDecimal> scores = new HashMap<>();
+    private Node<K> root;
+
+    // 设置key的分数，score为null时从索引中移除
+    public void put(K key, BigDecimal score) {
+        if (score == null) {
+            remove(key);
+            return;
+        }
+        BigDecimal previous = scores.get(key);
+        if (previous != null) {
+            if (previous.compareTo(score) == 0) {
+                return;
+            }
+            root = erase(root, previous, key);
+        }
+        scores.put(key, score);
+        root = insert(root, new Node<>(key, score, ThreadLocalRandom.current().nextInt()));
+    }
+
+    public boolean remove(K key) {
+        BigDecimal previous = scores.remove(key);
+        if (previous == null) {
+            return false;
+        }
+        root = erase(root, previous, key);
+        return true;
+    }
+
+    public BigDecimal getScore(K key) {
+        return scores.get(key);
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    // 查询名次（从0开始），descending为true时分数最高者为0；不存在时返回-1
+    public int rank(K key, boolean descending) {
+        BigDecimal score = scores.get(key);
+        if (score == null) {
+            return -1;
+        }
+        int ascending = 0;
+        Node<K> node = root;
+        while (node != null) {
+            int c = compare(score, key, node);
+            if (c == 0) {
+                ascending += size(node.left);
+                break;
+            }
+            if (c < 0) {
+                node = node.left;
+            } else {
+                ascending += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return descending ? size() - 1 - ascending : ascending;
+    }
+
+    // 按名次取一页：从第offset名开始最多limit个
+    public List<K> range(int offset, int limit, boolean descending) {
+        int total = size();
+        if (offset < 0 || limit <= 0 || offset >= total) {
+            return new ArrayList<>();
+        }
+        int count = Math.min(limit, total - offset);
+        int from = descending ? total - offset - count : offset;
+        List<K> keys = new ArrayList<>(count);
+        collect(root, from, from + count, keys);
+        if (descending) {
+            Collections.reverse(keys);
+        }
+        return keys;
+    }
+
+    // 中序收集升序名次在[from, to)内的key，只进入与区间有交集的子树
+    private void collect(Node<K> node, int from, int to, List<K> out) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (from < leftSize) {
+            collect(node.left, from, Math.min(to, leftSize), out);
+        }
+        if (from <= leftSize && leftSize < to) {
+            out.add(node.key);
+        }
+        if (to > leftSize + 1) {
+            collect(node.right, Math.max(0, from - leftSize - 1), to - leftSize - 1, out);
+        }
+    }
+
+    private Node<K> insert(Node<K> node, Node<K> item) {
+        if (node == null) {
+            return item;
+        }
+        if (item.priority > node.priority) {
+            split(node, item.score, item.key, item);
+            update(item);
+            return item;
+        }
+        if (compare(item.score, item.key, node) < 0) {
+            node.left = insert(node.left, item);
+        } else {
+            node.right = insert(node.right, item);
+        }
+        update(node);
+        return node;
+    }
+
+    // 把node按(score, key)拆成两棵树，分别挂到target的左右子树上
+    private void split(Node<K> node, BigDecimal score, K key, Node<K> target) {
+        Node<K> leftDummy = new Node<>(null, null, 0);
+        Node<K> rightDummy = new Node<>(null, null, 0);
+        Node<K> leftTail = leftDummy;
+        Node<K> rightTail = rightDummy;
+        List<Node<K>> touched = new ArrayList<>();
+        while (node != null) {
+            touched.add(node);
+            if (compare(score, key, node) > 0) {
+                leftTail.right = node;
+                leftTail = node;
+                node = node.right;
+            } else {
+                rightTail.left = node;
+                rightTail = node;
+                node = node.left;
+            }
+        }
+        leftTail.right = null;
+        rightTail.left = null;
+        // 自底向上修正子树大小
+        for (int i = touched.size() - 1; i >= 0; i--) {
+            update(touched.get(i));
+        }
+        target.left = leftDummy.right;
+        target.right = rightDummy.left;
+    }
+
+    private Node<K> erase(Node<K> node, BigDecimal score, K key) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(score, key, node);
+        if (c == 0) {
+            return merge(node.left, node.right);
+        }
+        if (c < 0) {
+            node.left = erase(node.left, score, key);
+        } else {
+            node.right = erase(node.right, score, key);
+        }
+        update(node);
+        return node;
+    }
+
+    // 合并两棵树，要求left中所有元素都小于right
+    private Node<K> merge(Node<K> left, Node<K> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private int compare(BigDecimal score, K key, Node<K> node) {
+        int c = score.compareTo(node.score);
+        return c != 0 ? c : key.compareTo(node.key);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static class Node<K> {
+        private final K key;
+        private final BigDecimal score;
+        private final int priority;
+        private int size = 1;
+        private Node<K> left;
+        private Node<K> right;
+
+        private Node(K key, BigDecimal score, int priority) {
+            this.key = key;
+            this.score = score;
+            this.priority = priority;
+        }
+    }
+}
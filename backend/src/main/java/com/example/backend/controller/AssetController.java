@@ -1,8 +1,12 @@
 package com.example.backend.controller;
 
 import com.example.backend.entity.Asset;
+import com.example.backend.repository.AssetSummary;
 import com.example.backend.service.AssetService;
+import com.example.backend.service.PortfolioValuationEngine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,17 +23,36 @@ public class AssetController {
     @Autowired
     private AssetService assetService;
 
-    // 获取用户资产列表
+    @Autowired
+    private PortfolioValuationEngine portfolioValuationEngine;
+
+    // 按类型查询时每页默认条数和上限
+    private static final int DEFAULT_TYPE_PAGE_SIZE = 200;
+    private static final int MAX_TYPE_PAGE_SIZE = 500;
+
+    // 获取用户资产列表；指定type时按用户和类型分页查询，响应中附带total/page/size
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAssets(@RequestParam Long userId, @RequestParam(required = false) String type) {
+    public ResponseEntity<Map<String, Object>> getAssets(@RequestParam Long userId,
+                                                         @RequestParam(required = false) String type,
+                                                         @RequestParam(defaultValue = "0") int page,
+                                                         @RequestParam(defaultValue = "" + DEFAULT_TYPE_PAGE_SIZE) int size) {
         try {
-            List<Asset> assets;
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "获取成功");
+            
             if (type != null) {
-                assets = assetService.getAssetsByType(userId, type);
-            } else {
-                assets = assetService.getAllAssets(userId);
+                Page<AssetSummary> assets = assetService.getAssetsByType(userId, type, Math.max(page, 0),
+                        Math.min(Math.max(size, 1), MAX_TYPE_PAGE_SIZE));
+                response.put("data", assets.getContent());
+                response.put("total", assets.getTotalElements());
+                response.put("page", assets.getNumber());
+                response.put("size", assets.getSize());
+                return ResponseEntity.ok(response);
             }
             
+            List<Asset> assets = assetService.getAllAssets(userId);
+            
             // 清除循环引用，设置user为null
             assets.forEach(asset -> {
                 asset.setUser(null);
@@ -40,9 +63,6 @@ public class AssetController {
                 }
             });
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("code", 200);
-            response.put("message", "获取成功");
             response.put("data", assets);
             
             return ResponseEntity.ok(response);
@@ -168,12 +188,39 @@ public class AssetController {
         }
     }
     
-    // 获取历史持仓数据
+    // 按实时价格获取组合估值：总市值、成本、盈亏和每个资产的占比
+    @GetMapping("/valuation/{userId}")
+    public ResponseEntity<Map<String, Object>> getValuation(@PathVariable Long userId) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "获取成功");
+            response.put("data", portfolioValuationEngine.valuate(userId));
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", e.getMessage());
+            
+            return ResponseEntity.ok(response);
+        }
+    }
+    
+    // 获取历史持仓数据：可用timeRange（7days/30days）或from/to指定范围，resolution为5m/1h/1d/1w，
+    // maxPoints不为空时在服务端降采样
     @GetMapping("/history")
-    public ResponseEntity<Map<String, Object>> getAssetHistory(@RequestParam Long userId, @RequestParam String timeRange) {
+    public ResponseEntity<Map<String, Object>> getAssetHistory(@RequestParam Long userId,
+                                                               @RequestParam(required = false) String timeRange,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                               @RequestParam(defaultValue = "1d") String resolution,
+                                                               @RequestParam(required = false) Integer maxPoints) {
         try {
+            LocalDateTime end = to != null ? to : LocalDateTime.now();
+            LocalDateTime start = from != null ? from : assetService.startOfRange(timeRange, end);
             // 从数据库获取真实历史数据
-            List<Map<String, Object>> historyData = assetService.getAssetHistory(userId, timeRange);
+            List<Map<String, Object>> historyData = assetService.getAssetHistory(userId, start, end, resolution, maxPoints);
             
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
@@ -2,40 +2,94 @@ package com.example.backend.controller;
 
 import com.example.backend.entity.Cryptocurrency;
 import com.example.backend.service.CryptocurrencyService;
+import com.example.backend.service.PriceBoard;
+import com.example.backend.service.PriceHistoryService;
+import com.example.backend.service.PriceQuote;
+import com.example.backend.service.PriceRankingService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping({"/api/cryptocurrencies", "/api/crypto/prices"})
 public class CryptocurrencyController {
 
     private final CryptocurrencyService cryptocurrencyService;
+    private final PriceHistoryService priceHistoryService;
+    private final PriceRankingService priceRankingService;
 
-    public CryptocurrencyController(CryptocurrencyService cryptocurrencyService) {
+    private static final int MAX_QUOTE_SYMBOLS = 500;
+
+    public CryptocurrencyController(CryptocurrencyService cryptocurrencyService,
+                                    PriceHistoryService priceHistoryService,
+                                    PriceRankingService priceRankingService) {
         this.cryptocurrencyService = cryptocurrencyService;
+        this.priceHistoryService = priceHistoryService;
+        this.priceRankingService = priceRankingService;
     }
 
-    // 获取所有加密货币
+    // 获取所有加密货币；传入since时只返回该版本之后发生变化的数据
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllCryptocurrencies(@RequestParam(required = false) Integer limit) {
+    public ResponseEntity<Map<String, Object>> getAllCryptocurrencies(@RequestParam(required = false) Integer limit,
+                                                                      @RequestParam(required = false) Long since) {
         try {
-            // 强制重新从硬编码数据填充，确保所有字段都有值
-            List<Cryptocurrency> cryptocurrencies = cryptocurrencyService.fetchAndSaveCryptocurrencyDataWithHardcoded();
+            if (since != null) {
+                return ResponseEntity.ok(buildDeltaResponse(cryptocurrencyService.getPriceChangesSince(since)));
+            }
+
+            // 直接读取内存价格看板，不访问数据库
+            PriceBoard.Snapshot snapshot = cryptocurrencyService.getPriceSnapshot();
+            List<PriceQuote> cryptocurrencies = snapshot.quotes();
             
-            // 如果指定了limit参数，只返回前limit条数据
+            // 如果指定了limit参数，按市值从高到低返回前limit条数据
             if (limit != null && limit > 0) {
-                cryptocurrencies = cryptocurrencies.subList(0, Math.min(limit, cryptocurrencies.size()));
+                cryptocurrencies = priceRankingService.getTopByMarketCap(limit);
             }
             
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "获取成功");
             response.put("data", cryptocurrencies);
+            response.put("version", snapshot.version());
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", e.getMessage());
+            
+            return ResponseEntity.ok(response);
+        }
+    }
+
+    // 获取价格排行：by可选 marketCap / change24h / volume24h / price，order为desc（默认）或asc，
+    // 例如涨幅榜 by=change24h&order=desc，跌幅榜 by=change24h&order=asc
+    @GetMapping("/ranking")
+    public ResponseEntity<Map<String, Object>> getRanking(@RequestParam(defaultValue = "marketCap") String by,
+                                                          @RequestParam(defaultValue = "desc") String order,
+                                                          @RequestParam(defaultValue = "0") int offset,
+                                                          @RequestParam(defaultValue = "20") int limit) {
+        try {
+            PriceRankingService.Page page = priceRankingService.getRanking(by, !"asc".equalsIgnoreCase(order),
+                    Math.max(0, offset), Math.min(Math.max(limit, 1), 500));
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "获取成功");
+            response.put("data", page.quotes());
+            response.put("total", page.total());
+            response.put("offset", page.offset());
+            response.put("by", page.by());
+            response.put("order", page.descending() ? "desc" : "asc");
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -47,16 +101,36 @@ public class CryptocurrencyController {
         }
     }
 
+    // 构建增量响应，没有变化时data为空并标记notModified
+    private Map<String, Object> buildDeltaResponse(PriceBoard.Delta delta) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("version", delta.version());
+        if (delta.isEmpty()) {
+            response.put("message", "数据未变化");
+            response.put("notModified", true);
+            response.put("data", List.of());
+            return response;
+        }
+        response.put("message", "获取成功");
+        response.put("notModified", false);
+        response.put("full", delta.full());
+        response.put("data", delta.quotes());
+        response.put("removed", delta.removed());
+        return response;
+    }
+
     // 根据Symbol获取加密货币
     @GetMapping({"/symbol/{symbol}", "/{symbol}"})
     public ResponseEntity<Map<String, Object>> getCryptocurrencyBySymbol(@PathVariable String symbol) {
         try {
-            Cryptocurrency cryptocurrency = cryptocurrencyService.getCryptocurrencyBySymbol(symbol);
+            // 优先读取内存价格看板
+            PriceQuote quote = cryptocurrencyService.getQuoteBySymbol(symbol);
             
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "获取成功");
-            response.put("data", cryptocurrency);
+            response.put("data", quote);
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -68,6 +142,72 @@ public class CryptocurrencyController {
         }
     }
 
+    // 批量获取多个Symbol的报价，symbols用逗号分隔，例如 ?symbols=BTC,ETH,SOL；
+    // 找不到的Symbol在missing中返回
+    @GetMapping("/quotes")
+    public ResponseEntity<Map<String, Object>> getQuotes(@RequestParam List<String> symbols) {
+        try {
+            Set<String> requested = new LinkedHashSet<>();
+            for (String symbol : symbols) {
+                if (symbol != null && !symbol.isBlank()) {
+                    requested.add(symbol.trim().toUpperCase());
+                }
+            }
+            if (requested.size() > MAX_QUOTE_SYMBOLS) {
+                throw new RuntimeException("一次最多查询 " + MAX_QUOTE_SYMBOLS + " 个Symbol");
+            }
+            Map<String, PriceQuote> quotes = cryptocurrencyService.getQuotes(requested);
+            List<String> missing = new ArrayList<>();
+            for (String symbol : requested) {
+                if (!quotes.containsKey(symbol)) {
+                    missing.add(symbol);
+                }
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "获取成功");
+            response.put("data", new ArrayList<>(quotes.values()));
+            response.put("missing", missing);
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", e.getMessage());
+            
+            return ResponseEntity.ok(response);
+        }
+    }
+
+    // 获取价格历史K线，时间范围越大粒度越粗，点数不超过maxPoints
+    @GetMapping("/{symbol}/history")
+    public ResponseEntity<Map<String, Object>> getPriceHistory(@PathVariable String symbol,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                               @RequestParam(defaultValue = "300") int maxPoints) {
+        try {
+            LocalDateTime end = to != null ? to : LocalDateTime.now();
+            LocalDateTime start = from != null ? from : end.minusDays(1);
+            if (!start.isBefore(end) || maxPoints <= 0) {
+                throw new IllegalArgumentException("时间范围或点数参数不正确");
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "获取成功");
+            response.put("data", priceHistoryService.getCandles(symbol, start, end, maxPoints));
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", e.getMessage());
+            
+            return ResponseEntity.ok(response);
+        }
+    }
+
     // 从Dify API获取并存储加密货币数据
     @PostMapping("/fetch")
     public ResponseEntity<Map<String, Object>> fetchAndSaveCryptocurrencies() {
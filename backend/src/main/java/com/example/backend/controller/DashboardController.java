@@ -1,11 +1,14 @@
 package com.example.backend.controller;
 
+import com.example.backend.service.AssetDistributionService;
 import com.example.backend.service.DashboardService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -15,6 +18,9 @@ public class DashboardController {
     @Autowired
     private DashboardService dashboardService;
 
+    @Autowired
+    private AssetDistributionService assetDistributionService;
+
     // 获取仪表盘统计数据
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getDashboardStats(@RequestParam Long userId) {
@@ -36,24 +42,23 @@ public class DashboardController {
         }
     }
 
-    // 获取资产分布数据
+    // 获取资产分布数据：groupBy=type按资产类型、groupBy=crypto按币种，数据库分组汇总并按用户缓存。
+    // data保持原来的 {分组: 百分比} 格式，slices为每组的资产数、市值和百分比明细
     @GetMapping("/asset-distribution")
-    public ResponseEntity<Map<String, Object>> getAssetDistribution(@RequestParam Long userId) {
+    public ResponseEntity<Map<String, Object>> getAssetDistribution(@RequestParam Long userId,
+                                                                    @RequestParam(defaultValue = AssetDistributionService.BY_TYPE) String groupBy) {
         try {
-            // 实际项目中应调用DashboardService获取资产分布数据
-            Map<String, Object> distribution = new HashMap<>();
-            
-            // 模拟数据
-            distribution.put("stock", 40.5);
-            distribution.put("bond", 25.2);
-            distribution.put("fund", 15.3);
-            distribution.put("realEstate", 12.0);
-            distribution.put("cash", 7.0);
+            List<AssetDistributionService.Slice> slices = assetDistributionService.getDistribution(userId, groupBy);
+            Map<String, Object> distribution = new LinkedHashMap<>();
+            for (AssetDistributionService.Slice slice : slices) {
+                distribution.put(slice.name(), slice.value());
+            }
             
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "获取成功");
             response.put("data", distribution);
+            response.put("slices", slices);
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
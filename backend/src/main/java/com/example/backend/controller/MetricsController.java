@@ -0,0 +1,176 @@
+package com.example.backend.controller;
+
+import com.example.backend.client.WorkflowHttpClient;
+import com.example.backend.service.AssetDistributionService;
+import com.example.backend.service.AssetHistoryCache;
+import com.example.backend.service.AssetRevaluationQueue;
+import com.example.backend.service.AssetRevaluationService;
+import com.example.backend.service.AssetSnapshotService;
+import com.example.backend.service.CryptocurrencyService;
+import com.example.backend.service.PortfolioAggregateService;
+import com.example.backend.service.PortfolioValuationEngine;
+import com.example.backend.service.PriceHistoryService;
+import com.example.backend.service.PriceStreamService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final AssetRevaluationService assetRevaluationService;
+    private final AssetRevaluationQueue assetRevaluationQueue;
+    private final WorkflowHttpClient workflowHttpClient;
+    private final CryptocurrencyService cryptocurrencyService;
+    private final PortfolioValuationEngine portfolioValuationEngine;
+    private final AssetDistributionService assetDistributionService;
+    private final PortfolioAggregateService portfolioAggregateService;
+    private final AssetHistoryCache assetHistoryCache;
+    private final AssetSnapshotService assetSnapshotService;
+    private final PriceHistoryService priceHistoryService;
+    private final PriceStreamService priceStreamService;
+
+    public MetricsController(AssetRevaluationService assetRevaluationService,
+                             AssetRevaluationQueue assetRevaluationQueue,
+                             WorkflowHttpClient workflowHttpClient,
+                             CryptocurrencyService cryptocurrencyService,
+                             PortfolioValuationEngine portfolioValuationEngine,
+                             AssetDistributionService assetDistributionService,
+                             PortfolioAggregateService portfolioAggregateService,
+                             AssetHistoryCache assetHistoryCache,
+                             AssetSnapshotService assetSnapshotService,
+                             PriceHistoryService priceHistoryService,
+                             PriceStreamService priceStreamService) {
+        this.assetRevaluationService = assetRevaluationService;
+        this.assetRevaluationQueue = assetRevaluationQueue;
+        this.workflowHttpClient = workflowHttpClient;
+        this.cryptocurrencyService = cryptocurrencyService;
+        this.portfolioValuationEngine = portfolioValuationEngine;
+        this.assetDistributionService = assetDistributionService;
+        this.portfolioAggregateService = portfolioAggregateService;
+        this.assetHistoryCache = assetHistoryCache;
+        this.assetSnapshotService = assetSnapshotService;
+        this.priceHistoryService = priceHistoryService;
+        this.priceStreamService = priceStreamService;
+    }
+
+    // 获取资产重估指标：队列深度、延迟以及最近的重估记录（更新行数、耗时）
+    @GetMapping("/revaluation")
+    public ResponseEntity<Map<String, Object>> getRevaluationMetrics() {
+        Map<String, Object> data = new HashMap<>(assetRevaluationQueue.getMetrics());
+        data.put("pendingSymbols", assetRevaluationQueue.getPendingSymbols());
+        data.put("recent", assetRevaluationService.getRecentResults());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", data);
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // 获取外部工作流调用指标：各调用的延迟直方图、成功/失败/超时/拒绝/对冲次数
+    @GetMapping("/http-clients")
+    public ResponseEntity<Map<String, Object>> getHttpClientMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", workflowHttpClient.getMetrics());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // 获取行情采集指标：合并请求数、后备数据使用次数以及Dify熔断器状态
+    @GetMapping("/price-fetch")
+    public ResponseEntity<Map<String, Object>> getPriceFetchMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", cryptocurrencyService.getFetchMetrics());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // 获取组合估值引擎指标：常驻用户数、加载次数、已应用的资产事件数和估值次数
+    @GetMapping("/portfolio")
+    public ResponseEntity<Map<String, Object>> getPortfolioMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", portfolioValuationEngine.getMetrics());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // 获取资产分布缓存指标：缓存用户数、命中/未命中和失效次数
+    @GetMapping("/asset-distribution")
+    public ResponseEntity<Map<String, Object>> getAssetDistributionMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", assetDistributionService.getMetrics());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // 获取组合汇总缓存指标：缓存用户数、命中/未命中、刷新和失效次数
+    @GetMapping("/portfolio-aggregates")
+    public ResponseEntity<Map<String, Object>> getPortfolioAggregateMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", portfolioAggregateService.getMetrics());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // 获取资产历史缓存指标：条目数、缓存行数、关闭边界、命中/补尾/未命中和淘汰次数
+    @GetMapping("/asset-history")
+    public ResponseEntity<Map<String, Object>> getAssetHistoryMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", assetHistoryCache.getMetrics());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // 获取资产快照指标：是否正在执行、成功/失败/跳过次数以及最近的执行记录（层级、耗时、行数）
+    @GetMapping("/snapshots")
+    public ResponseEntity<Map<String, Object>> getSnapshotMetrics() {
+        Map<String, Object> data = new HashMap<>(assetSnapshotService.getMetrics());
+        data.put("recent", assetSnapshotService.getRecentRuns());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", data);
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // 获取价格历史写入指标：缓冲中的tick数、已写入条数、写入失败次数和因缓冲已满丢弃的条数
+    @GetMapping("/price-history")
+    public ResponseEntity<Map<String, Object>> getPriceHistoryMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", priceHistoryService.getMetrics());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // 获取价格推送指标：连接数、待发送积压以及因积压被断开的连接数
+    @GetMapping("/price-stream")
+    public ResponseEntity<Map<String, Object>> getPriceStreamMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("message", "获取成功");
+        response.put("data", priceStreamService.getMetrics());
+        
+        return ResponseEntity.ok(response);
+    }
+}
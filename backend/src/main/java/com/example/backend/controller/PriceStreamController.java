@@ -0,0 +1,42 @@
+package com.example.backend.controller;
+
+import com.example.backend.service.PriceStreamService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/crypto/prices/stream")
+public class PriceStreamController {
+
+    private final PriceStreamService priceStreamService;
+
+    public PriceStreamController(PriceStreamService priceStreamService) {
+        this.priceStreamService = priceStreamService;
+    }
+
+    // 订阅价格推送，symbols为逗号分隔的Symbol列表，不传则订阅全部
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPrices(@RequestParam(required = false) List<String> symbols) {
+        return priceStreamService.subscribe(symbols);
+    }
+
+    // 修改已建立连接的订阅范围，subscriberId为建立连接时snapshot消息中返回的令牌
+    @PutMapping("/{subscriberId}/symbols")
+    public ResponseEntity<Map<String, Object>> updateSubscription(@PathVariable String subscriberId, @RequestBody List<String> symbols) {
+        Map<String, Object> response = new HashMap<>();
+        if (priceStreamService.updateSubscription(subscriberId, symbols)) {
+            response.put("code", 200);
+            response.put("message", "订阅已更新");
+        } else {
+            response.put("code", 404);
+            response.put("message", "推送连接不存在或已断开");
+        }
+        return ResponseEntity.ok(response);
+    }
+}
@@ -8,7 +8,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "assets")
+@Table(name = "assets", indexes = {
+        @Index(name = "idx_assets_user_type", columnList = "user_id, type"),
+        @Index(name = "idx_assets_crypto_type", columnList = "crypto_type")
+})
 @Data
 @NoArgsConstructor
 public class Asset {
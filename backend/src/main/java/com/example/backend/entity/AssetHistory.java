@@ -8,11 +8,18 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "asset_history")
+@Table(name = "asset_history", indexes = {
+        @Index(name = "idx_asset_history_asset_time", columnList = "asset_id, snapshot_time")
+})
 @Data
 @NoArgsConstructor
 public class AssetHistory {
 
+    // 快照所属的层级（按位组合）：每5分钟、整点、每日。新增/修改资产时写入的单条快照为0
+    public static final int TIER_5M = 1;
+    public static final int TIER_1H = 2;
+    public static final int TIER_1D = 4;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -42,6 +49,9 @@ public class AssetHistory {
     @Column(name = "crypto_type", length = 20)
     private String cryptoType; // BTC、ETH等加密货币类型
 
+    @Column(name = "tier_mask")
+    private Integer tierMask;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -69,27 +79,25 @@ public class AssetHistory {
         // 设置value字段为currentValue的值
         value = currentValue;
         // 设置percentage字段为固定比率
-        // 根据用户要求，比率是固定的：BTC 40%、ETH 35%、SOL 15%、USDT 10%
-        if (cryptoType != null) {
-            switch (cryptoType) {
-                case "BTC":
-                    percentage = BigDecimal.valueOf(40);
-                    break;
-                case "ETH":
-                    percentage = BigDecimal.valueOf(35);
-                    break;
-                case "SOL":
-                    percentage = BigDecimal.valueOf(15);
-                    break;
-                case "USDT":
-                    percentage = BigDecimal.valueOf(10);
-                    break;
-                default:
-                    percentage = BigDecimal.ZERO;
-                    break;
-            }
-        } else {
-            percentage = BigDecimal.ZERO;
+        percentage = fixedPercentage(cryptoType);
+    }
+
+    // 根据用户要求，比率是固定的：BTC 40%、ETH 35%、SOL 15%、USDT 10%
+    public static BigDecimal fixedPercentage(String cryptoType) {
+        if (cryptoType == null) {
+            return BigDecimal.ZERO;
+        }
+        switch (cryptoType) {
+            case "BTC":
+                return BigDecimal.valueOf(40);
+            case "ETH":
+                return BigDecimal.valueOf(35);
+            case "SOL":
+                return BigDecimal.valueOf(15);
+            case "USDT":
+                return BigDecimal.valueOf(10);
+            default:
+                return BigDecimal.ZERO;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.example.backend.entity;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "portfolio_aggregates")
+@Data
+@NoArgsConstructor
+public class PortfolioAggregate {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "total_assets", nullable = false)
+    private Integer totalAssets;
+
+    @Column(name = "total_value", nullable = false, precision = 24, scale = 6)
+    private BigDecimal totalValue;
+
+    @Column(name = "total_cost", nullable = false, precision = 24, scale = 6)
+    private BigDecimal totalCost;
+
+    @Column(name = "total_profit", nullable = false, precision = 24, scale = 6)
+    private BigDecimal totalProfit;
+
+    // 当天第一次快照时的总市值，用于计算日涨跌
+    @Column(name = "day_open_value", precision = 24, scale = 6)
+    private BigDecimal dayOpenValue;
+
+    @Column(name = "day_open_date")
+    private LocalDate dayOpenDate;
+
+    // 当月第一次快照时的总市值，用于计算月涨跌
+    @Column(name = "month_open_value", precision = 24, scale = 6)
+    private BigDecimal monthOpenValue;
+
+    @Column(name = "month_open_date")
+    private LocalDate monthOpenDate;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
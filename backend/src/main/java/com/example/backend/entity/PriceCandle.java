@@ -0,0 +1,46 @@
+package com.example.backend.entity;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "price_candles", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_price_candles_symbol_resolution_bucket", columnNames = {"symbol", "resolution", "bucket_start"})
+}, indexes = {
+        @Index(name = "idx_price_candles_resolution_bucket", columnList = "resolution, bucket_start")
+})
+@Data
+@NoArgsConstructor
+public class PriceCandle {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String symbol;
+
+    @Column(nullable = false, length = 4)
+    private String resolution; // 1m、1h、1d
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "open_price", nullable = false, precision = 18, scale = 6)
+    private BigDecimal open;
+
+    @Column(name = "high_price", nullable = false, precision = 18, scale = 6)
+    private BigDecimal high;
+
+    @Column(name = "low_price", nullable = false, precision = 18, scale = 6)
+    private BigDecimal low;
+
+    @Column(name = "close_price", nullable = false, precision = 18, scale = 6)
+    private BigDecimal close;
+
+    @Column(name = "tick_count", nullable = false)
+    private Integer tickCount;
+}
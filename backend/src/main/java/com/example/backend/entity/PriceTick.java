@@ -0,0 +1,32 @@
+package com.example.backend.entity;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "price_ticks", indexes = {
+        @Index(name = "idx_price_ticks_symbol_time", columnList = "symbol, tick_time")
+})
+@Data
+@NoArgsConstructor
+public class PriceTick {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String symbol;
+
+    @Column(nullable = false, precision = 18, scale = 6)
+    private BigDecimal price;
+
+    @Column(name = "volume_24h", precision = 24, scale = 6)
+    private BigDecimal volume24h;
+
+    @Column(name = "tick_time", nullable = false)
+    private LocalDateTime tickTime;
+}
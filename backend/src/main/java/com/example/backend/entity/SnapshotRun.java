@@ -0,0 +1,43 @@
+package com.example.backend.entity;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "snapshot_runs")
+@Data
+@NoArgsConstructor
+public class SnapshotRun {
+
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_SKIPPED = "SKIPPED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 本次快照覆盖的层级，取值见 AssetHistory.TIER_*
+    @Column(name = "tier_mask", nullable = false)
+    private Integer tierMask;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "row_count")
+    private Integer rowCount;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+}
@@ -0,0 +1,187 @@
+package com.example.backend.feed;
+
+import com.example.backend.client.CircuitBreaker;
+import com.example.backend.client.DifyWorkflowStream;
+import com.example.backend.client.WorkflowHttpClient;
+import com.example.backend.entity.Cryptocurrency;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Dify工作流行情数据源
+ */
+@Component
+public class DifyPriceFeed implements PriceFeed {
+
+    private final String difyApiUrl;
+    private final String difyApiKey;
+    private final WorkflowHttpClient workflowHttpClient;
+    private final ObjectMapper objectMapper;
+    private final boolean streaming;
+    private final CircuitBreaker circuitBreaker;
+
+    public DifyPriceFeed(@Value("${dify.api.url}") String difyApiUrl,
+                         @Value("${dify.api.key}") String difyApiKey,
+                         @Value("${dify.response-mode:streaming}") String responseMode,
+                         @Value("${dify.circuit-breaker.failure-threshold:3}") int failureThreshold,
+                         @Value("${dify.circuit-breaker.open-duration-ms:300000}") long openDurationMs,
+                         WorkflowHttpClient workflowHttpClient) {
+        this.difyApiUrl = difyApiUrl;
+        this.difyApiKey = difyApiKey;
+        this.streaming = "streaming".equalsIgnoreCase(responseMode);
+        this.workflowHttpClient = workflowHttpClient;
+        this.circuitBreaker = new CircuitBreaker("dify-price", failureThreshold, openDurationMs);
+        // 确保ObjectMapper能够正确处理BigDecimal
+        this.objectMapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
+
+    @Override
+    public String getName() {
+        return "dify";
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @Override
+    public List<Cryptocurrency> fetch() {
+        if (streaming) {
+            List<Cryptocurrency> cryptocurrencies = new ArrayList<>();
+            fetchInBatches(Integer.MAX_VALUE, cryptocurrencies::addAll);
+            return cryptocurrencies;
+        }
+        acquireCircuit();
+        try {
+            List<Cryptocurrency> cryptocurrencies = fetchBlocking();
+            circuitBreaker.recordSuccess();
+            return cryptocurrencies;
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure();
+            throw e;
+        }
+    }
+
+    @Override
+    public void fetchInBatches(int batchSize, Consumer<List<Cryptocurrency>> batchConsumer) {
+        if (!streaming) {
+            PriceFeed.super.fetchInBatches(batchSize, batchConsumer);
+            return;
+        }
+        acquireCircuit();
+        boolean[] consumerFailed = {false};
+        try {
+            fetchStreaming(batchSize, batch -> {
+                try {
+                    batchConsumer.accept(batch);
+                } catch (RuntimeException e) {
+                    consumerFailed[0] = true;
+                    throw e;
+                }
+            });
+            circuitBreaker.recordSuccess();
+        } catch (RuntimeException e) {
+            // 入库等下游环节失败时Dify本身是正常的，不计入熔断
+            if (consumerFailed[0]) {
+                circuitBreaker.recordSuccess();
+            } else {
+                circuitBreaker.recordFailure();
+            }
+            throw e;
+        }
+    }
+
+    private void acquireCircuit() {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new CircuitBreaker.OpenException(circuitBreaker.getName());
+        }
+    }
+
+    // 流式模式：边接收边解析，每解析出batchSize条就交给调用方入库，不等工作流全部输出完
+    private void fetchStreaming(int batchSize, Consumer<List<Cryptocurrency>> batchConsumer) {
+        System.out.println("正在以流式模式调用Dify API...");
+        Set<String> seenSymbols = new HashSet<>();
+        List<Cryptocurrency> batch = new ArrayList<>();
+        DifyWorkflowStream stream = new DifyWorkflowStream(objectMapper, node -> {
+            Cryptocurrency crypto = PriceFeedParser.parse(node);
+            // 重复的Symbol保留第一条
+            if (!seenSymbols.add(crypto.getSymbol())) {
+                return;
+            }
+            batch.add(crypto);
+            if (batch.size() >= batchSize) {
+                batchConsumer.accept(new ArrayList<>(batch));
+                batch.clear();
+            }
+        });
+
+        String requestBody = "{\"inputs\": {}, \"response_mode\": \"streaming\", \"user\": \"abc-123\"}";
+        workflowHttpClient.postForLines("dify-price", difyApiUrl, difyApiKey, requestBody, stream);
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(new ArrayList<>(batch));
+        }
+
+        stream.verifyComplete();
+        if (!stream.hasArray()) {
+            throw new RuntimeException("Dify API输出中不包含JSON数组");
+        }
+        System.out.println("Dify API流式返回 " + seenSymbols.size() + " 种加密货币");
+    }
+
+    // 阻塞模式：等待工作流执行完毕后一次性解析
+    private List<Cryptocurrency> fetchBlocking() {
+        try {
+            // 调用Dify API
+            System.out.println("正在调用Dify API...");
+            
+            // 设置请求体
+            String requestBody = "{\"inputs\": {}, \"response_mode\": \"blocking\", \"user\": \"abc-123\"}";
+            
+            // 通过共享客户端发送POST请求（带超时与并发限制）
+            String response = workflowHttpClient.postJson("dify-price", difyApiUrl, difyApiKey, requestBody);
+
+            System.out.println("Dify API原始响应: " + response);
+
+            // 检查响应是否为空
+            if (response == null) {
+                throw new RuntimeException("Dify API响应为空");
+            }
+
+            // 解析响应
+            JsonNode rootNode = objectMapper.readTree(response);
+            
+            // 检查根节点是否包含text字段
+            if (!rootNode.has("text")) {
+                throw new RuntimeException("Dify API响应不包含text字段");
+            }
+            
+            // 移除 ```json 和 ``` 标记以及多余的换行符和空格
+            String jsonString = rootNode.path("text").asText()
+                    .replaceAll("```json", "")
+                    .replaceAll("```", "")
+                    .trim();
+
+            // 验证JSON字符串是否为空
+            if (jsonString.isEmpty()) {
+                throw new RuntimeException("处理后的JSON字符串为空");
+            }
+
+            List<Cryptocurrency> cryptocurrencies = PriceFeedParser.parseArray(objectMapper.readTree(jsonString));
+            System.out.println("Dify API返回 " + cryptocurrencies.size() + " 种加密货币");
+            return cryptocurrencies;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("解析Dify API响应失败: " + e.getMessage(), e);
+        }
+    }
+}
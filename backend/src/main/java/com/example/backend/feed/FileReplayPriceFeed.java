@@ -0,0 +1,98 @@
+package com.example.backend.feed;
+
+import com.example.backend.entity.Cryptocurrency;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文件回放行情数据源
+ *
+ * 文件内容可以是一个行情数组（单帧），也可以是由多个行情数组组成的数组（多帧）；
+ * 每次fetch返回下一帧，播放到末尾后从头循环。默认回放内置的后备行情数据
+ */
+@Component
+public class FileReplayPriceFeed implements PriceFeed {
+
+    public static final String FALLBACK_LOCATION = "classpath:feeds/fallback-prices.json";
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final ObjectMapper objectMapper;
+
+    private List<List<Cryptocurrency>> frames;
+    private int nextFrame;
+
+    public FileReplayPriceFeed(ResourceLoader resourceLoader,
+                               @Value("${price-feed.replay.location:" + FALLBACK_LOCATION + "}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+        this.objectMapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
+
+    @Override
+    public String getName() {
+        return "replay";
+    }
+
+    @Override
+    public synchronized List<Cryptocurrency> fetch() {
+        if (frames == null) {
+            frames = load(location);
+        }
+        if (frames.isEmpty()) {
+            throw new RuntimeException("回放文件没有数据: " + location);
+        }
+        List<Cryptocurrency> frame = frames.get(nextFrame);
+        nextFrame = (nextFrame + 1) % frames.size();
+        // 每次返回新对象，避免调用方修改实体影响下一轮回放
+        List<Cryptocurrency> copies = new ArrayList<>();
+        for (Cryptocurrency crypto : frame) {
+            Cryptocurrency copy = new Cryptocurrency();
+            copy.setName(crypto.getName());
+            copy.setSymbol(crypto.getSymbol());
+            copy.setPrice(crypto.getPrice());
+            copy.setPriceCurrency(crypto.getPriceCurrency());
+            copy.setMarketCap(crypto.getMarketCap());
+            copy.setChange24h(crypto.getChange24h());
+            copy.setVolume24h(crypto.getVolume24h());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    // 读取指定位置的行情文件（支持classpath:和file:前缀）
+    public List<Cryptocurrency> loadSingleFrame(String resourceLocation) {
+        List<List<Cryptocurrency>> loaded = load(resourceLocation);
+        return loaded.isEmpty() ? new ArrayList<>() : loaded.get(0);
+    }
+
+    private List<List<Cryptocurrency>> load(String resourceLocation) {
+        Resource resource = resourceLoader.getResource(resourceLocation);
+        try (InputStream in = resource.getInputStream()) {
+            JsonNode root = objectMapper.readTree(in);
+            List<List<Cryptocurrency>> loaded = new ArrayList<>();
+            if (root.isArray() && root.size() > 0 && root.get(0).isArray()) {
+                for (JsonNode frame : root) {
+                    loaded.add(PriceFeedParser.parseArray(frame));
+                }
+            } else {
+                loaded.add(PriceFeedParser.parseArray(root));
+            }
+            System.out.println("已加载回放文件 " + resourceLocation + "，共 " + loaded.size() + " 帧");
+            return loaded;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("读取回放文件失败: " + resourceLocation + ", " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.backend.feed;
+
+import com.example.backend.entity.Cryptocurrency;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 最近一次成功采集的行情（last-known-good），保存在本地文件中
+ *
+ * 文件格式与 feeds/fallback-prices.json 相同；写入时先写临时文件再原子替换，
+ * 进程中途退出也不会留下半个文件
+ */
+@Component
+public class LastKnownGoodStore {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    public LastKnownGoodStore(@Value("${price-feed.last-known-good.path:data/last-known-good-prices.json}") String path) {
+        this.path = Paths.get(path);
+        this.objectMapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
+
+    // 保存一组成功采集的行情，失败只打印日志，不影响采集本身
+    public synchronized void save(List<Cryptocurrency> cryptocurrencies) {
+        if (cryptocurrencies.isEmpty()) {
+            return;
+        }
+        try {
+            ArrayNode array = objectMapper.createArrayNode();
+            for (Cryptocurrency crypto : cryptocurrencies) {
+                ObjectNode node = array.addObject();
+                node.put("name", crypto.getName());
+                node.put("symbol", crypto.getSymbol());
+                node.put("price", crypto.getPrice());
+                node.put("price_currency", crypto.getPriceCurrency());
+                if (crypto.getMarketCap() != null) {
+                    node.put("market_cap", crypto.getMarketCap());
+                }
+                if (crypto.getChange24h() != null) {
+                    node.put("change_24h", crypto.getChange24h());
+                }
+                if (crypto.getVolume24h() != null) {
+                    node.put("volume_24h", crypto.getVolume24h());
+                }
+            }
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, "last-known-good", ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), array);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            System.err.println("保存last-known-good行情失败: " + e.getMessage());
+        }
+    }
+
+    // 读取最近一次成功采集的行情，文件不存在或损坏时返回空
+    public synchronized Optional<List<Cryptocurrency>> load() {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(PriceFeedParser.parseArray(objectMapper.readTree(path.toFile())));
+        } catch (Exception e) {
+            System.err.println("读取last-known-good行情失败: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
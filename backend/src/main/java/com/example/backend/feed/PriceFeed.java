@@ -0,0 +1,37 @@
+package com.example.backend.feed;
+
+import com.example.backend.entity.Cryptocurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 行情数据源SPI
+ *
+ * 每次fetch返回一批最新行情（同一批内Symbol不重复），由 CryptocurrencyService 统一入库、
+ * 刷新价格看板并触发资产重估；通过配置 price-feed.active 选择当前使用的数据源
+ */
+public interface PriceFeed {
+
+    /**
+     * 数据源名称，对应 price-feed.active 的取值
+     */
+    String getName();
+
+    /**
+     * 拉取一批最新行情，失败时抛出运行时异常
+     */
+    List<Cryptocurrency> fetch();
+
+    /**
+     * 分批拉取行情：每凑满batchSize条（或数据源结束时）回调一次。
+     * 默认一次fetch后再切分，能边接收边解析的数据源可覆盖此方法，尽早交出已到达的数据
+     */
+    default void fetchInBatches(int batchSize, Consumer<List<Cryptocurrency>> batchConsumer) {
+        List<Cryptocurrency> all = fetch();
+        for (int from = 0; from < all.size(); from += batchSize) {
+            batchConsumer.accept(new ArrayList<>(all.subList(from, Math.min(all.size(), from + batchSize))));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.backend.feed;
+
+import com.example.backend.entity.Cryptocurrency;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把行情JSON（name、symbol、price、price_currency、market_cap、change_24h、volume_24h）转换为实体
+ */
+public final class PriceFeedParser {
+
+    private PriceFeedParser() {
+    }
+
+    // 解析JSON数组，重复的Symbol保留第一条
+    public static List<Cryptocurrency> parseArray(JsonNode arrayNode) {
+        if (!arrayNode.isArray()) {
+            throw new RuntimeException("解析后的数据不是JSON数组");
+        }
+        Map<String, Cryptocurrency> bySymbol = new LinkedHashMap<>();
+        for (JsonNode node : arrayNode) {
+            Cryptocurrency crypto = parse(node);
+            bySymbol.putIfAbsent(crypto.getSymbol(), crypto);
+        }
+        return new ArrayList<>(bySymbol.values());
+    }
+
+    // 解析单条行情
+    public static Cryptocurrency parse(JsonNode node) {
+        Cryptocurrency crypto = new Cryptocurrency();
+        crypto.setName(node.path("name").asText());
+        crypto.setSymbol(node.path("symbol").asText());
+        crypto.setPrice(new BigDecimal(node.path("price").asText()));
+        crypto.setPriceCurrency(node.path("price_currency").asText());
+        
+        if (node.has("market_cap")) {
+            crypto.setMarketCap(new BigDecimal(node.path("market_cap").asText()));
+        }
+        if (node.has("change_24h")) {
+            crypto.setChange24h(new BigDecimal(node.path("change_24h").asText()));
+        }
+        if (node.has("volume_24h")) {
+            crypto.setVolume24h(new BigDecimal(node.path("volume_24h").asText()));
+        }
+        return crypto;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.backend.feed;
+
+import com.example.backend.entity.Cryptocurrency;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 本地行情模拟器，用于在没有网络的情况下压测采集、重估和读取链路
+ *
+ * 生成symbol-count个Symbol，价格按几何随机游走变化；每次fetch按距上次调用的时间
+ * 生成 ticks-per-second × 秒数 个tick（随机落在各Symbol上，同一批内同一Symbol只保留最新值）。
+ * 第一次fetch返回全部Symbol，用于初始化
+ */
+@Component
+public class SimulatedPriceFeed implements PriceFeed {
+
+    private final int symbolCount;
+    private final int ticksPerSecond;
+    private final double volatility;
+    private final Random random;
+
+    private String[] symbols;
+    private double[] prices;
+    private double[] openPrices;
+    private double[] volumes;
+    private long lastFetchNanos;
+
+    public SimulatedPriceFeed(@Value("${price-feed.simulator.symbol-count:5000}") int symbolCount,
+                              @Value("${price-feed.simulator.ticks-per-second:500}") int ticksPerSecond,
+                              @Value("${price-feed.simulator.volatility:0.001}") double volatility,
+                              @Value("${price-feed.simulator.seed:42}") long seed) {
+        this.symbolCount = symbolCount;
+        this.ticksPerSecond = ticksPerSecond;
+        this.volatility = volatility;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public String getName() {
+        return "simulator";
+    }
+
+    @Override
+    public synchronized List<Cryptocurrency> fetch() {
+        long now = System.nanoTime();
+        if (symbols == null) {
+            init();
+            lastFetchNanos = now;
+            List<Cryptocurrency> all = new ArrayList<>(symbolCount);
+            for (int i = 0; i < symbolCount; i++) {
+                all.add(toEntity(i));
+            }
+            return all;
+        }
+
+        // 最多补10秒的tick，避免长时间未调用后一次生成过多数据
+        double elapsedSeconds = Math.min((now - lastFetchNanos) / 1_000_000_000.0, 10.0);
+        lastFetchNanos = now;
+        int ticks = (int) Math.round(ticksPerSecond * elapsedSeconds);
+
+        Map<Integer, Cryptocurrency> batch = new LinkedHashMap<>();
+        for (int t = 0; t < ticks; t++) {
+            int i = random.nextInt(symbolCount);
+            prices[i] = Math.max(prices[i] * Math.exp(volatility * random.nextGaussian()), 0.000001);
+            volumes[i] = volumes[i] * (1 + 0.01 * random.nextGaussian());
+            batch.put(i, toEntity(i));
+        }
+        return new ArrayList<>(batch.values());
+    }
+
+    private void init() {
+        symbols = new String[symbolCount];
+        prices = new double[symbolCount];
+        openPrices = new double[symbolCount];
+        volumes = new double[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            symbols[i] = String.format("SIM%05d", i);
+            // 价格在0.01到100000之间按对数均匀分布
+            prices[i] = Math.pow(10, -2 + 7 * random.nextDouble());
+            openPrices[i] = prices[i];
+            volumes[i] = prices[i] * (1_000 + random.nextInt(1_000_000));
+        }
+    }
+
+    private Cryptocurrency toEntity(int i) {
+        Cryptocurrency crypto = new Cryptocurrency();
+        crypto.setName("模拟币" + symbols[i]);
+        crypto.setSymbol(symbols[i]);
+        crypto.setPrice(BigDecimal.valueOf(prices[i]).setScale(6, RoundingMode.HALF_UP));
+        crypto.setPriceCurrency("CNY");
+        crypto.setMarketCap(BigDecimal.valueOf(prices[i] * 1_000_000_000L).setScale(6, RoundingMode.HALF_UP));
+        crypto.setChange24h(BigDecimal.valueOf((prices[i] / openPrices[i] - 1) * 100).setScale(4, RoundingMode.HALF_UP));
+        crypto.setVolume24h(BigDecimal.valueOf(Math.abs(volumes[i])).setScale(6, RoundingMode.HALF_UP));
+        return crypto;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.backend.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * 按资产类型和加密货币类型分组的汇总行（GROUP BY 投影），cryptoType 为空表示非加密资产
+ */
+public record AssetGroupTotal(String type, String cryptoType, Long count, BigDecimal totalValue) {
+}
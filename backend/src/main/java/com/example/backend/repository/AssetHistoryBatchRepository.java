@@ -0,0 +1,92 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.AssetHistory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 资产快照的批量读写：按主键游标（id > ?）分块读取资产，用JDBC批量插入写入 asset_history
+ *
+ * 不经过 Hibernate，避免 IDENTITY 主键导致的逐行插入；MySQL 连接开启了 rewriteBatchedStatements，
+ * 一个批次会被改写成多值 INSERT。date、value、percentage 列按 AssetHistory 的 @PrePersist 规则在这里填充
+ *
+ * 增量快照读取资产时同时关联每个资产最近一条快照（按 (asset_id, snapshot_time) 索引倒序取一行），
+ * 用于判断是否有变化，不需要在内存中保存上次写入的值
+ */
+@Repository
+public class AssetHistoryBatchRepository {
+
+    private static final String SELECT_CHUNK_SQL = "SELECT id, price, quantity, current_value, cost_price, "
+            + "profit_rate, crypto_type FROM assets WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_CHUNK_WITH_LAST_SQL = "SELECT a.id, a.price, a.quantity, a.current_value, "
+            + "a.cost_price, a.profit_rate, a.crypto_type, "
+            + "h.price AS last_price, h.quantity AS last_quantity, h.cost_price AS last_cost_price "
+            + "FROM assets a LEFT JOIN asset_history h ON h.id = (SELECT h2.id FROM asset_history h2 "
+            + "WHERE h2.asset_id = a.id ORDER BY h2.snapshot_time DESC, h2.id DESC LIMIT 1) "
+            + "WHERE a.id > ? AND a.id <= ? ORDER BY a.id LIMIT ?";
+
+    private static final String INSERT_SQL = "INSERT INTO asset_history (asset_id, price, quantity, current_value, "
+            + "cost_price, profit_rate, crypto_type, tier_mask, snapshot_time, created_at, date, value, percentage) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AssetHistoryBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // 资产表的主键范围 {最小, 最大}，表为空时返回null
+    public long[] findIdRange() {
+        return jdbcTemplate.queryForObject("SELECT MIN(id), MAX(id) FROM assets", (rs, rowNum) -> {
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        });
+    }
+
+    // 读取主键在 (afterId, upToId] 内的下一块资产，最多limit行，按主键升序；
+    // withLast为true时同时读取每个资产最近一条快照的值
+    public List<AssetSnapshotRow> findAssetChunk(long afterId, long upToId, int limit, boolean withLast) {
+        return jdbcTemplate.query(withLast ? SELECT_CHUNK_WITH_LAST_SQL : SELECT_CHUNK_SQL, (rs, rowNum) -> new AssetSnapshotRow(
+                rs.getLong("id"),
+                rs.getBigDecimal("price"),
+                rs.getBigDecimal("quantity"),
+                rs.getBigDecimal("current_value"),
+                rs.getBigDecimal("cost_price"),
+                rs.getBigDecimal("profit_rate"),
+                rs.getString("crypto_type"),
+                withLast ? rs.getBigDecimal("last_price") : null,
+                withLast ? rs.getBigDecimal("last_quantity") : null,
+                withLast ? rs.getBigDecimal("last_cost_price") : null), afterId, upToId, limit);
+    }
+
+    // 批量写入一块资产的快照，同一轮快照共用snapshotTime
+    public void insertSnapshots(List<AssetSnapshotRow> rows, LocalDateTime snapshotTime, int tierMask) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp time = Timestamp.valueOf(snapshotTime);
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        Date date = Date.valueOf(snapshotTime.toLocalDate());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.id());
+            ps.setBigDecimal(2, row.price());
+            ps.setBigDecimal(3, row.quantity());
+            ps.setBigDecimal(4, row.currentValue());
+            ps.setBigDecimal(5, row.costPrice());
+            ps.setBigDecimal(6, row.profitRate());
+            ps.setString(7, row.cryptoType());
+            ps.setInt(8, tierMask);
+            ps.setTimestamp(9, time);
+            ps.setTimestamp(10, createdAt);
+            ps.setDate(11, date);
+            ps.setBigDecimal(12, row.currentValue());
+            ps.setBigDecimal(13, AssetHistory.fixedPercentage(row.cryptoType()));
+        });
+    }
+}
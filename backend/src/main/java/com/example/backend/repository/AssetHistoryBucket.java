@@ -0,0 +1,20 @@
+package com.example.backend.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * 历史快照按时间桶聚合后的一行：bucket 为 snapshot_time 距 1970-01-05 00:00 的秒数整除桶长，
+ * currentValue、cost 为该资产在桶内最后一次快照的市值和成本（成本价×数量）
+ */
+public interface AssetHistoryBucket {
+
+    Long getAssetId();
+
+    String getCryptoType();
+
+    Long getBucket();
+
+    BigDecimal getCurrentValue();
+
+    BigDecimal getCost();
+}
@@ -1,6 +1,8 @@
 package com.example.backend.repository;
 import com.example.backend.entity.AssetHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -25,4 +27,21 @@ public interface AssetHistoryRepository extends JpaRepository<AssetHistory, Long
     
     // 根据用户ID和时间范围查询历史记录
     List<AssetHistory> findByAsset_UserIdAndSnapshotTimeBetween(Long userId, LocalDateTime startTime, LocalDateTime endTime);
+    
+    // 一次查询取出用户所有资产在时间范围内的快照，按桶长（秒）分桶，每个资产每个桶只保留最后一条
+    // 桶号按不带时区的 snapshot_time 相对1970-01-05（周一）计算，日桶与按日期分组一致，周桶从周一开始
+    @Query(value = "SELECT t.asset_id AS assetId, t.crypto_type AS cryptoType, t.bucket AS bucket, "
+            + "t.current_value AS currentValue, t.cost AS cost FROM ("
+            + "SELECT h.asset_id, h.crypto_type, h.current_value, h.cost_price * h.quantity AS cost, "
+            + "FLOOR(TIMESTAMPDIFF(SECOND, '1970-01-05 00:00:00', h.snapshot_time) / :bucketSeconds) AS bucket, "
+            + "ROW_NUMBER() OVER (PARTITION BY h.asset_id, "
+            + "FLOOR(TIMESTAMPDIFF(SECOND, '1970-01-05 00:00:00', h.snapshot_time) / :bucketSeconds) "
+            + "ORDER BY h.snapshot_time DESC, h.id DESC) AS rn "
+            + "FROM asset_history h JOIN assets a ON a.id = h.asset_id "
+            + "WHERE a.user_id = :userId AND h.snapshot_time BETWEEN :startTime AND :endTime"
+            + ") t WHERE t.rn = 1 ORDER BY t.bucket, t.asset_id", nativeQuery = true)
+    List<AssetHistoryBucket> findLastInBuckets(@Param("userId") Long userId,
+                                               @Param("startTime") LocalDateTime startTime,
+                                               @Param("endTime") LocalDateTime endTime,
+                                               @Param("bucketSeconds") long bucketSeconds);
 }
\ No newline at end of file
@@ -2,9 +2,14 @@ package com.example.backend.repository;
 
 import com.example.backend.entity.Asset;
 import com.example.backend.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +18,21 @@ public interface AssetRepository extends JpaRepository<Asset, Long> {
     List<Asset> findByUserId(Long userId);
     List<Asset> findByUserAndType(User user, String type);
     List<Asset> findByCryptoType(String cryptoType);
+
+    // 按用户和类型分页查询资产投影，走 idx_assets_user_type 索引
+    @Query(value = "select new com.example.backend.repository.AssetSummary(a.id, a.name, a.type, a.quantity, a.price, "
+            + "a.currentValue, a.costPrice, a.profitRate, a.cryptoType, a.createdAt, a.updatedAt) "
+            + "from Asset a where a.user.id = :userId and a.type = :type order by a.id",
+            countQuery = "select count(a) from Asset a where a.user.id = :userId and a.type = :type")
+    Page<AssetSummary> findSummariesByUserIdAndType(@Param("userId") Long userId, @Param("type") String type,
+                                                    Pageable pageable);
+
+    // 在数据库中按类型和币种汇总用户资产的数量和市值
+    @Query("select new com.example.backend.repository.AssetGroupTotal(a.type, a.cryptoType, count(a), sum(a.currentValue)) "
+            + "from Asset a where a.user.id = :userId group by a.type, a.cryptoType")
+    List<AssetGroupTotal> sumCurrentValueByUserId(@Param("userId") Long userId);
+
+    // 在给定Symbol中找出有用户持仓的Symbol
+    @Query("select distinct a.cryptoType from Asset a where a.cryptoType in :symbols")
+    List<String> findHeldCryptoTypes(@Param("symbols") Collection<String> symbols);
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.backend.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * 写快照需要的资产列，按主键分块读取，不经过实体和持久化上下文；
+ * last* 为该资产最近一条快照的价格、数量和成本价，没有快照或未读取时为null
+ */
+public record AssetSnapshotRow(long id,
+                               BigDecimal price,
+                               BigDecimal quantity,
+                               BigDecimal currentValue,
+                               BigDecimal costPrice,
+                               BigDecimal profitRate,
+                               String cryptoType,
+                               BigDecimal lastPrice,
+                               BigDecimal lastQuantity,
+                               BigDecimal lastCostPrice) {
+}
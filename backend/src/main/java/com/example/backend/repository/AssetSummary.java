@@ -0,0 +1,21 @@
+package com.example.backend.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 资产列表的轻量投影：只查询资产表自身的列，不加载用户和历史快照关联；
+ * 字段名与 Asset 实体的 JSON 输出一致，前端无需改动
+ */
+public record AssetSummary(Long id,
+                           String name,
+                           String type,
+                           BigDecimal quantity,
+                           BigDecimal price,
+                           BigDecimal currentValue,
+                           BigDecimal costPrice,
+                           BigDecimal profitRate,
+                           String cryptoType,
+                           LocalDateTime createdAt,
+                           LocalDateTime updatedAt) {
+}
@@ -0,0 +1,57 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.Cryptocurrency;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * 加密货币批量写入，基于symbol唯一键使用 INSERT ... ON DUPLICATE KEY UPDATE，
+ * 新值通过行别名（AS new，MySQL 8.0.19+）引用，不使用已废弃的 VALUES(col)
+ *
+ * IDENTITY主键让Hibernate无法批量插入，这里直接走JDBC批处理，
+ * 配合连接参数 rewriteBatchedStatements=true，每批只需一次网络往返
+ */
+@Repository
+public class CryptocurrencyBatchRepository {
+
+    private static final String UPSERT_SQL = "INSERT INTO cryptocurrencies "
+            + "(name, symbol, price, price_currency, market_cap, change_24h, volume_24h, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) AS new "
+            + "ON DUPLICATE KEY UPDATE name = new.name, price = new.price, "
+            + "price_currency = new.price_currency, market_cap = new.market_cap, "
+            + "change_24h = new.change_24h, volume_24h = new.volume_24h, updated_at = new.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public CryptocurrencyBatchRepository(JdbcTemplate jdbcTemplate,
+                                         @Value("${crypto.upsert.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    // 批量插入或更新，返回处理的记录数；调用方需保证symbol不重复
+    public int upsertAll(Collection<Cryptocurrency> cryptocurrencies, LocalDateTime now) {
+        if (cryptocurrencies.isEmpty()) {
+            return 0;
+        }
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(UPSERT_SQL, cryptocurrencies, batchSize, (ps, crypto) -> {
+            ps.setString(1, crypto.getName());
+            ps.setString(2, crypto.getSymbol());
+            ps.setBigDecimal(3, crypto.getPrice());
+            ps.setString(4, crypto.getPriceCurrency());
+            ps.setBigDecimal(5, crypto.getMarketCap());
+            ps.setBigDecimal(6, crypto.getChange24h());
+            ps.setBigDecimal(7, crypto.getVolume24h());
+            ps.setTimestamp(8, crypto.getCreatedAt() != null ? Timestamp.valueOf(crypto.getCreatedAt()) : timestamp);
+            ps.setTimestamp(9, timestamp);
+        });
+        return cryptocurrencies.size();
+    }
+}
@@ -6,12 +6,17 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CryptocurrencyRepository extends JpaRepository<Cryptocurrency, Long> {
     Optional<Cryptocurrency> findBySymbol(String symbol);
     
+    // 一次查询多个Symbol
+    List<Cryptocurrency> findBySymbolIn(Collection<String> symbols);
+    
     // 删除所有记录（用于测试和重置数据）
     void deleteAll();
     
@@ -0,0 +1,104 @@
+package com.example.backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户组合汇总表的集合SQL刷新
+ *
+ * 汇总值用 INSERT ... SELECT ... GROUP BY ... ON DUPLICATE KEY UPDATE 一次写入，只覆盖汇总列
+ * （新值按派生表的列别名引用，不使用已废弃的 VALUES(col)），
+ * 日/月开盘市值由快照时的 rollOpenValues 维护，刷新时不会被改写。
+ * 价格重估不重算汇总，只把持仓市值的变化量（数量×新价格 − 原市值）加到持有者的总市值和总盈亏上
+ */
+@Repository
+public class PortfolioAggregateBatchRepository {
+
+    private static final String UPSERT_SQL = "INSERT INTO portfolio_aggregates "
+            + "(user_id, total_assets, total_value, total_cost, total_profit, updated_at) "
+            + "SELECT * FROM (SELECT user_id, COUNT(*) AS assets_count, SUM(current_value) AS value_sum, "
+            + "ROUND(SUM(cost_price * quantity), 6) AS cost_sum, "
+            + "ROUND(SUM(current_value) - SUM(cost_price * quantity), 6) AS profit_sum, ? AS refreshed_at "
+            + "FROM assets WHERE %s GROUP BY user_id) AS agg "
+            + "ON DUPLICATE KEY UPDATE total_assets = assets_count, total_value = value_sum, "
+            + "total_cost = cost_sum, total_profit = profit_sum, updated_at = refreshed_at";
+
+    // 资产已全部删除的用户清零
+    private static final String CLEAR_EMPTY_SQL = "UPDATE portfolio_aggregates SET total_assets = 0, total_value = 0, "
+            + "total_cost = 0, total_profit = 0, updated_at = ? "
+            + "WHERE %s AND NOT EXISTS (SELECT 1 FROM assets a WHERE a.user_id = portfolio_aggregates.user_id)";
+
+    // 持仓市值变化量，与重估写入 current_value 时一样按6位小数四舍五入
+    private static final String REVALUATION_DELTA = "(SELECT COALESCE(SUM(ROUND(a.quantity * ?, 6) - a.current_value), 0) "
+            + "FROM assets a WHERE a.user_id = portfolio_aggregates.user_id AND a.crypto_type = ? AND a.id BETWEEN ? AND ?)";
+
+    private static final String APPLY_REVALUATION_SQL = "UPDATE portfolio_aggregates SET "
+            + "total_value = total_value + " + REVALUATION_DELTA + ", "
+            + "total_profit = total_profit + " + REVALUATION_DELTA + ", updated_at = ? "
+            + "WHERE user_id IN (SELECT user_id FROM assets WHERE crypto_type = ? AND id BETWEEN ? AND ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PortfolioAggregateBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // 重算单个用户
+    public void refreshUser(Long userId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(String.format(UPSERT_SQL, "user_id = ?"), now, userId);
+        jdbcTemplate.update(String.format(CLEAR_EMPTY_SQL, "user_id = ?"), now, userId);
+    }
+
+    // 持有某个Symbol的用户ID
+    public List<Long> findHolders(String symbol) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT user_id FROM assets WHERE crypto_type = ?", Long.class, symbol);
+    }
+
+    // 在重估主键区间 [fromId, toId] 内的持仓之前调用（同一事务）：把这些持仓按新价格产生的市值变化加到持有者的汇总上
+    public int applyRevaluation(String symbol, BigDecimal price, long fromId, long toId) {
+        return jdbcTemplate.update(APPLY_REVALUATION_SQL, price, symbol, fromId, toId, price, symbol, fromId, toId,
+                Timestamp.valueOf(LocalDateTime.now()), symbol, fromId, toId);
+    }
+
+    // 逐行重估时按用户累加市值变化量
+    public void addValueDeltas(Map<Long, BigDecimal> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<Long, BigDecimal>> entries = List.copyOf(deltas.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE portfolio_aggregates SET total_value = total_value + ?, "
+                + "total_profit = total_profit + ?, updated_at = ? WHERE user_id = ?", entries, entries.size(), (ps, entry) -> {
+            ps.setBigDecimal(1, entry.getValue());
+            ps.setBigDecimal(2, entry.getValue());
+            ps.setTimestamp(3, now);
+            ps.setLong(4, entry.getKey());
+        });
+    }
+
+    // 重算所有用户
+    public void refreshAll() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(String.format(UPSERT_SQL, "1 = 1"), now);
+        jdbcTemplate.update(String.format(CLEAR_EMPTY_SQL, "1 = 1"), now);
+    }
+
+    // 跨天/跨月后第一次快照时，把当前总市值记为新的日/月开盘市值，返回更新的行数
+    public int rollOpenValues(LocalDate today) {
+        LocalDate monthStart = today.withDayOfMonth(1);
+        int rolled = jdbcTemplate.update("UPDATE portfolio_aggregates SET day_open_value = total_value, day_open_date = ? "
+                + "WHERE day_open_date IS NULL OR day_open_date <> ?", Date.valueOf(today), Date.valueOf(today));
+        rolled += jdbcTemplate.update("UPDATE portfolio_aggregates SET month_open_value = total_value, month_open_date = ? "
+                + "WHERE month_open_date IS NULL OR month_open_date <> ?", Date.valueOf(monthStart), Date.valueOf(monthStart));
+        return rolled;
+    }
+}
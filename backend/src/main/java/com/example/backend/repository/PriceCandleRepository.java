@@ -0,0 +1,15 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.PriceCandle;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PriceCandleRepository extends JpaRepository<PriceCandle, Long> {
+    // 按Symbol、粒度和时间范围查询K线，按时间升序
+    List<PriceCandle> findBySymbolAndResolutionAndBucketStartBetweenOrderByBucketStart(
+            String symbol, String resolution, LocalDateTime start, LocalDateTime end);
+}
@@ -0,0 +1,79 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.PriceCandle;
+import com.example.backend.entity.PriceTick;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * 价格tick与K线的批量写入
+ *
+ * K线使用 INSERT ... ON DUPLICATE KEY UPDATE 合并：开盘价保留首次写入的值，
+ * 最高/最低取极值，收盘价取本批次最后一个价格；新值通过行别名（AS new）引用，不使用已废弃的 VALUES(col)
+ */
+@Repository
+public class PriceTickBatchRepository {
+
+    private static final String INSERT_TICK_SQL = "INSERT INTO price_ticks (symbol, price, volume_24h, tick_time) "
+            + "VALUES (?, ?, ?, ?)";
+
+    private static final String UPSERT_CANDLE_SQL = "INSERT INTO price_candles "
+            + "(symbol, resolution, bucket_start, open_price, high_price, low_price, close_price, tick_count) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) AS new "
+            + "ON DUPLICATE KEY UPDATE high_price = GREATEST(price_candles.high_price, new.high_price), "
+            + "low_price = LEAST(price_candles.low_price, new.low_price), close_price = new.close_price, "
+            + "tick_count = price_candles.tick_count + new.tick_count";
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PriceTickBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // 批量写入原始tick
+    public void insertTicks(Collection<PriceTick> ticks) {
+        if (ticks.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_TICK_SQL, ticks, BATCH_SIZE, (ps, tick) -> {
+            ps.setString(1, tick.getSymbol());
+            ps.setBigDecimal(2, tick.getPrice());
+            ps.setBigDecimal(3, tick.getVolume24h());
+            ps.setTimestamp(4, Timestamp.valueOf(tick.getTickTime()));
+        });
+    }
+
+    // 批量合并K线
+    public void upsertCandles(Collection<PriceCandle> candles) {
+        if (candles.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_CANDLE_SQL, candles, BATCH_SIZE, (ps, candle) -> {
+            ps.setString(1, candle.getSymbol());
+            ps.setString(2, candle.getResolution());
+            ps.setTimestamp(3, Timestamp.valueOf(candle.getBucketStart()));
+            ps.setBigDecimal(4, candle.getOpen());
+            ps.setBigDecimal(5, candle.getHigh());
+            ps.setBigDecimal(6, candle.getLow());
+            ps.setBigDecimal(7, candle.getClose());
+            ps.setInt(8, candle.getTickCount());
+        });
+    }
+
+    // 删除指定时间之前的原始tick，每次最多删除limit行，返回删除行数
+    public int deleteTicksBefore(LocalDateTime time, int limit) {
+        return jdbcTemplate.update("DELETE FROM price_ticks WHERE tick_time < ? LIMIT ?", Timestamp.valueOf(time), limit);
+    }
+
+    // 删除某个粒度在指定时间之前的K线，每次最多limit条，返回删除的条数
+    public int deleteCandlesBefore(String resolution, LocalDateTime time, int limit) {
+        return jdbcTemplate.update("DELETE FROM price_candles WHERE resolution = ? AND bucket_start < ? LIMIT ?",
+                resolution, Timestamp.valueOf(time), limit);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.SnapshotRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SnapshotRunRepository extends JpaRepository<SnapshotRun, Long> {
+
+    // 最近的快照记录，最新的在前
+    List<SnapshotRun> findTop20ByOrderByIdDesc();
+
+    // 指定状态的最近一条记录
+    Optional<SnapshotRun> findTopByStatusOrderByIdDesc(String status);
+}
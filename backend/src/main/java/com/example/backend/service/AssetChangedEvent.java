@@ -0,0 +1,30 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Asset;
+
+import java.math.BigDecimal;
+
+/**
+ * 资产写入事件（新增、修改、删除后发布），携带重新计算组合所需的持仓字段
+ *
+ * 删除时只有 userId 和 assetId 有意义
+ */
+public record AssetChangedEvent(Long userId,
+                                Long assetId,
+                                boolean deleted,
+                                String name,
+                                String type,
+                                String cryptoType,
+                                BigDecimal quantity,
+                                BigDecimal costPrice,
+                                BigDecimal currentValue) {
+
+    public static AssetChangedEvent saved(Asset asset) {
+        return new AssetChangedEvent(asset.getUser().getId(), asset.getId(), false, asset.getName(), asset.getType(),
+                asset.getCryptoType(), asset.getQuantity(), asset.getCostPrice(), asset.getCurrentValue());
+    }
+
+    public static AssetChangedEvent deleted(Long userId, Long assetId) {
+        return new AssetChangedEvent(userId, assetId, true, null, null, null, null, null, null);
+    }
+}
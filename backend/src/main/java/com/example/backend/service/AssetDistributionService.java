@@ -0,0 +1,141 @@
+package com.example.backend.service;
+
+import com.example.backend.repository.AssetGroupTotal;
+import com.example.backend.repository.AssetRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 资产分布服务：每个用户一条 GROUP BY 查询得到按类型、币种汇总的市值，结果按用户缓存
+ *
+ * 用户资产写入（AssetChangedEvent）时失效该用户的缓存；某个Symbol重估（AssetsRevaluedEvent）时
+ * 只失效持有该Symbol的用户。事件在事务提交后处理，避免读到未提交的数据再被缓存
+ */
+@Service
+public class AssetDistributionService {
+
+    public static final String BY_TYPE = "type";
+    public static final String BY_CRYPTO = "crypto";
+
+    private static final BigDecimal HUNDRED = new BigDecimal(100);
+
+    private final AssetRepository assetRepository;
+
+    private final Map<Long, Entry> cache = new ConcurrentHashMap<>();
+    // 每次失效加一；查询期间发生过失效的结果不写入缓存
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public AssetDistributionService(AssetRepository assetRepository) {
+        this.assetRepository = assetRepository;
+    }
+
+    // 获取用户资产分布：groupBy为type时按资产类型分组，为crypto时按币种分组（非加密资产按资产类型归组）
+    public List<Slice> getDistribution(Long userId, String groupBy) {
+        if (!BY_TYPE.equals(groupBy) && !BY_CRYPTO.equals(groupBy)) {
+            throw new RuntimeException("不支持的分组方式: " + groupBy + "，可选: " + BY_TYPE + ", " + BY_CRYPTO);
+        }
+        Entry entry = cache.get(userId);
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            long version = invalidations.get();
+            entry = Entry.of(assetRepository.sumCurrentValueByUserId(userId));
+            if (invalidations.get() == version) {
+                cache.put(userId, entry);
+                // 写入缓存的同时发生了失效，撤回这次写入
+                if (invalidations.get() != version) {
+                    cache.remove(userId, entry);
+                }
+            }
+        }
+        return BY_TYPE.equals(groupBy) ? entry.byType() : entry.byCrypto();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssetChanged(AssetChangedEvent event) {
+        invalidations.incrementAndGet();
+        cache.remove(event.userId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssetsRevalued(AssetsRevaluedEvent event) {
+        invalidations.incrementAndGet();
+        cache.values().removeIf(entry -> entry.symbols().contains(event.symbol()));
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("cachedUsers", cache.size());
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("invalidations", invalidations.get());
+        return metrics;
+    }
+
+    // 合并分组并计算占比（与原实现相同：保留4位小数、四舍五入后乘100），按市值从大到小排列
+    private static List<Slice> toSlices(Map<String, long[]> counts, Map<String, BigDecimal> amounts) {
+        BigDecimal total = amounts.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<Slice> slices = new ArrayList<>(amounts.size());
+        for (Map.Entry<String, BigDecimal> group : amounts.entrySet()) {
+            BigDecimal percent = total.signum() == 0 ? BigDecimal.ZERO
+                    : group.getValue().divide(total, 4, RoundingMode.HALF_UP).multiply(HUNDRED);
+            slices.add(new Slice(group.getKey(), counts.get(group.getKey())[0], group.getValue(), percent,
+                    String.format("%.1f%%", percent)));
+        }
+        slices.sort(Comparator.comparing(Slice::amount).reversed());
+        return List.copyOf(slices);
+    }
+
+    /**
+     * 一个用户的缓存：两种分组的结果和该用户持有的Symbol
+     */
+    private record Entry(List<Slice> byType, List<Slice> byCrypto, Set<String> symbols) {
+
+        static Entry of(List<AssetGroupTotal> rows) {
+            Map<String, long[]> typeCounts = new LinkedHashMap<>();
+            Map<String, BigDecimal> typeAmounts = new LinkedHashMap<>();
+            Map<String, long[]> cryptoCounts = new LinkedHashMap<>();
+            Map<String, BigDecimal> cryptoAmounts = new LinkedHashMap<>();
+            Set<String> symbols = new HashSet<>();
+            for (AssetGroupTotal row : rows) {
+                BigDecimal amount = row.totalValue() == null ? BigDecimal.ZERO : row.totalValue();
+                add(typeCounts, typeAmounts, row.type(), row.count(), amount);
+                boolean crypto = row.cryptoType() != null && !row.cryptoType().isEmpty();
+                add(cryptoCounts, cryptoAmounts, crypto ? row.cryptoType() : row.type(), row.count(), amount);
+                if (crypto) {
+                    symbols.add(row.cryptoType());
+                }
+            }
+            return new Entry(toSlices(typeCounts, typeAmounts), toSlices(cryptoCounts, cryptoAmounts), Set.copyOf(symbols));
+        }
+
+        private static void add(Map<String, long[]> counts, Map<String, BigDecimal> amounts,
+                                String key, long count, BigDecimal amount) {
+            counts.computeIfAbsent(key, k -> new long[1])[0] += count;
+            amounts.merge(key, amount, BigDecimal::add);
+        }
+    }
+
+    /**
+     * 分布中的一项：value 为占总市值的百分比，字段名与原饼图接口一致
+     */
+    public record Slice(String name, long count, BigDecimal amount, BigDecimal value, String rateText) {
+    }
+}
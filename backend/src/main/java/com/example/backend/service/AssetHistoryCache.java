@@ -0,0 +1,253 @@
+package com.example.backend.service;
+
+import com.example.backend.repository.AssetHistoryBucket;
+import com.example.backend.repository.AssetHistoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 资产历史分桶结果缓存，按 (用户, 粒度) 缓存已关闭时间桶的结果行
+ *
+ * 一个桶在其结束时间之后又完成过一轮全量快照（AssetSnapshotTakenEvent）即视为关闭，之后不会再变化，
+ * 可以永久缓存；仍在进行中的桶每次查询都重新计算。每轮快照只推进关闭边界，缓存条目按需向后补齐，
+ * 不需要整体失效。删除资产会级联删除其历史，此时失效该用户的缓存。
+ * 按缓存的总行数限制内存，超出时淘汰最久未使用的条目
+ */
+@Service
+public class AssetHistoryCache {
+
+    // 关闭边界相对快照完成时间的安全余量，覆盖快照完成前开始、之后才提交的单条写入
+    private static final long CLOSE_MARGIN_SECONDS = 60;
+
+    private final AssetHistoryRepository assetHistoryRepository;
+    private final long maxRows;
+
+    // accessOrder=true，遍历顺序即最久未使用在前
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRows;
+    // 每次失效加一；查询期间发生过失效的结果不写入缓存
+    private long invalidations;
+    // 已关闭的时间上限：此前的快照不会再变化。启动前写入的快照都早于启动时间
+    private volatile LocalDateTime closedBefore = LocalDateTime.now().minusSeconds(CLOSE_MARGIN_SECONDS);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong partialHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public AssetHistoryCache(AssetHistoryRepository assetHistoryRepository,
+                             @Value("${asset.history.cache.max-rows:1000000}") long maxRows) {
+        this.assetHistoryRepository = assetHistoryRepository;
+        this.maxRows = maxRows;
+    }
+
+    @EventListener
+    public void onSnapshotTaken(AssetSnapshotTakenEvent event) {
+        LocalDateTime boundary = event.finishedAt().minusSeconds(CLOSE_MARGIN_SECONDS);
+        if (boundary.isAfter(closedBefore)) {
+            closedBefore = boundary;
+        }
+    }
+
+    // 删除资产会级联删除其历史；提交后再失效，避免删除提交前又把旧数据缓存起来
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssetChanged(AssetChangedEvent event) {
+        if (event.deleted()) {
+            invalidateUser(event.userId());
+        }
+    }
+
+    /**
+     * 查询桶号在 [startBucket, endBucket] 内的结果行（按桶号、资产ID排序），
+     * 桶号与 AssetHistoryRepository.findLastInBuckets 相同，epoch 为桶号0的起始时间
+     */
+    public List<AssetHistoryBucket> load(Long userId, long bucketSeconds, LocalDateTime epoch,
+                                         long startBucket, long endBucket) {
+        // 第一个尚未关闭的桶
+        long openFrom = Math.max(startBucket, bucketOf(closedBefore, epoch, bucketSeconds));
+        long closedTo = Math.min(endBucket + 1, openFrom);
+
+        List<AssetHistoryBucket> result = new ArrayList<>();
+        if (startBucket < closedTo) {
+            result.addAll(loadClosed(new Key(userId, bucketSeconds), epoch, startBucket, closedTo));
+        }
+        if (openFrom <= endBucket) {
+            result.addAll(query(userId, bucketSeconds, epoch, openFrom, endBucket + 1));
+        }
+        return result;
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("entries", entries.size());
+        metrics.put("cachedRows", cachedRows);
+        metrics.put("maxRows", maxRows);
+        metrics.put("closedBefore", closedBefore);
+        metrics.put("hits", hits.get());
+        metrics.put("partialHits", partialHits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("evictions", evictions.get());
+        return metrics;
+    }
+
+    // 已关闭桶 [from, to) 的结果：缓存完全覆盖时直接返回，只缺尾部时补查尾部，否则整段重查
+    private List<AssetHistoryBucket> loadClosed(Key key, LocalDateTime epoch, long from, long to) {
+        Entry entry;
+        long version;
+        synchronized (this) {
+            entry = entries.get(key);
+            version = invalidations;
+        }
+        if (entry != null && entry.from <= from && entry.to >= to) {
+            hits.incrementAndGet();
+            return entry.slice(from, to);
+        }
+
+        Entry updated;
+        if (entry != null && entry.from <= from && entry.to >= from) {
+            partialHits.incrementAndGet();
+            updated = entry.append(query(key.userId, key.bucketSeconds, epoch, entry.to, to), to);
+        } else {
+            misses.incrementAndGet();
+            updated = new Entry(from, to, query(key.userId, key.bucketSeconds, epoch, from, to));
+        }
+        store(key, entry, updated, version);
+        return updated.slice(from, to);
+    }
+
+    private synchronized void store(Key key, Entry previous, Entry updated, long version) {
+        if (version != invalidations || entries.get(key) != previous) {
+            // 期间被失效或被其他请求更新过，放弃这次写入
+            return;
+        }
+        if (previous != null) {
+            cachedRows -= previous.rows.size();
+        }
+        entries.put(key, updated);
+        cachedRows += updated.rows.size();
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (cachedRows > maxRows && eldest.hasNext()) {
+            Map.Entry<Key, Entry> victim = eldest.next();
+            if (victim.getKey().equals(key)) {
+                continue;
+            }
+            cachedRows -= victim.getValue().rows.size();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private synchronized void invalidateUser(Long userId) {
+        invalidations++;
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            if (entry.getKey().userId.equals(userId)) {
+                cachedRows -= entry.getValue().rows.size();
+                iterator.remove();
+            }
+        }
+    }
+
+    // 查询桶号在 [from, to) 内的结果
+    private List<AssetHistoryBucket> query(Long userId, long bucketSeconds, LocalDateTime epoch, long from, long to) {
+        LocalDateTime start = epoch.plusSeconds(from * bucketSeconds);
+        LocalDateTime end = epoch.plusSeconds(to * bucketSeconds).minusNanos(1000);
+        List<AssetHistoryBucket> rows = new ArrayList<>();
+        for (AssetHistoryBucket row : assetHistoryRepository.findLastInBuckets(userId, start, end, bucketSeconds)) {
+            rows.add(new Row(row.getAssetId(), row.getCryptoType(), row.getBucket(), row.getCurrentValue(), row.getCost()));
+        }
+        return rows;
+    }
+
+    private static long bucketOf(LocalDateTime time, LocalDateTime epoch, long bucketSeconds) {
+        return Math.floorDiv(Duration.between(epoch, time).getSeconds(), bucketSeconds);
+    }
+
+    private record Key(Long userId, long bucketSeconds) {
+    }
+
+    private record Row(Long assetId, String cryptoType, Long bucket, BigDecimal currentValue, BigDecimal cost)
+            implements AssetHistoryBucket {
+
+        @Override
+        public Long getAssetId() {
+            return assetId;
+        }
+
+        @Override
+        public String getCryptoType() {
+            return cryptoType;
+        }
+
+        @Override
+        public Long getBucket() {
+            return bucket;
+        }
+
+        @Override
+        public BigDecimal getCurrentValue() {
+            return currentValue;
+        }
+
+        @Override
+        public BigDecimal getCost() {
+            return cost;
+        }
+    }
+
+    /**
+     * 覆盖桶号 [from, to) 的连续缓存段，rows 按桶号排序且不可变
+     */
+    private static final class Entry {
+
+        final long from;
+        final long to;
+        final List<AssetHistoryBucket> rows;
+
+        Entry(long from, long to, List<AssetHistoryBucket> rows) {
+            this.from = from;
+            this.to = to;
+            this.rows = List.copyOf(rows);
+        }
+
+        Entry append(List<AssetHistoryBucket> tail, long newTo) {
+            List<AssetHistoryBucket> merged = new ArrayList<>(rows.size() + tail.size());
+            merged.addAll(rows);
+            merged.addAll(tail);
+            return new Entry(from, newTo, merged);
+        }
+
+        // 取桶号在 [sliceFrom, sliceTo) 内的行，二分定位起点
+        List<AssetHistoryBucket> slice(long sliceFrom, long sliceTo) {
+            int low = 0;
+            int high = rows.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (rows.get(mid).getBucket() < sliceFrom) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            List<AssetHistoryBucket> result = new ArrayList<>();
+            for (int i = low; i < rows.size() && rows.get(i).getBucket() < sliceTo; i++) {
+                result.add(rows.get(i));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.backend.service;
+
+import com.example.backend.repository.AssetRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步资产重估队列：每个Symbol只保留最新价格（后到的覆盖先到的）
+ *
+ * 价格写入只负责入队并立即返回，后台任务按固定间隔对每个Symbol重估一次，
+ * 两次重估之间的中间价格被合并掉
+ */
+@Service
+public class AssetRevaluationQueue {
+
+    private final AssetRevaluationService assetRevaluationService;
+    private final AssetRepository assetRepository;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile long lastLagMs;
+    private volatile long maxLagMs;
+
+    public AssetRevaluationQueue(AssetRevaluationService assetRevaluationService,
+                                 AssetRepository assetRepository) {
+        this.assetRevaluationService = assetRevaluationService;
+        this.assetRepository = assetRepository;
+    }
+
+    // 提交一个Symbol的最新价格
+    public void offer(String symbol, BigDecimal price) {
+        enqueued.incrementAndGet();
+        pending.merge(symbol, new Pending(price, System.currentTimeMillis()), (oldValue, newValue) -> {
+            coalesced.incrementAndGet();
+            // 保留最早入队时间，用于计算延迟
+            return new Pending(newValue.price(), oldValue.enqueuedAt());
+        });
+    }
+
+    // 定时处理队列，每个Symbol只重估一次
+    @Scheduled(fixedDelayString = "${asset.revaluation.interval-ms:1000}")
+    public void drain() {
+        List<String> symbols = new ArrayList<>(pending.keySet());
+        if (symbols.isEmpty()) {
+            return;
+        }
+        // 一次查询找出有人持仓的Symbol，高频数据源下大部分Symbol无人持有，直接跳过
+        Set<String> held;
+        try {
+            held = new HashSet<>(assetRepository.findHeldCryptoTypes(symbols));
+        } catch (Exception e) {
+            System.err.println("查询持仓Symbol失败，下个周期重试: " + e.getMessage());
+            return;
+        }
+        for (String symbol : symbols) {
+            Pending task = pending.remove(symbol);
+            if (task == null) {
+                continue;
+            }
+            if (!held.contains(symbol)) {
+                skipped.incrementAndGet();
+                continue;
+            }
+            try {
+                assetRevaluationService.revalue(symbol, task.price());
+                processed.incrementAndGet();
+                long lag = System.currentTimeMillis() - task.enqueuedAt();
+                lastLagMs = lag;
+                maxLagMs = Math.max(maxLagMs, lag);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                System.err.println("资产重估失败: " + symbol + "，下个周期重试: " + e.getMessage());
+                // 期间没有更新的价格时放回队列重试
+                pending.putIfAbsent(symbol, task);
+            }
+        }
+    }
+
+    // 队列指标：深度、最老任务等待时间、累计入队/合并/处理/失败次数
+    public Map<String, Object> getMetrics() {
+        long now = System.currentTimeMillis();
+        long oldestLag = 0;
+        for (Pending task : pending.values()) {
+            oldestLag = Math.max(oldestLag, now - task.enqueuedAt());
+        }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("queueDepth", pending.size());
+        metrics.put("oldestPendingLagMs", oldestLag);
+        metrics.put("lastLagMs", lastLagMs);
+        metrics.put("maxLagMs", maxLagMs);
+        metrics.put("enqueued", enqueued.get());
+        metrics.put("coalesced", coalesced.get());
+        metrics.put("processed", processed.get());
+        metrics.put("failed", failed.get());
+        metrics.put("skipped", skipped.get());
+        return metrics;
+    }
+
+    public List<String> getPendingSymbols() {
+        return new ArrayList<>(pending.keySet());
+    }
+
+    private record Pending(BigDecimal price, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.backend.service;
+
+import com.example.backend.repository.PortfolioAggregateBatchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 资产批量重估：价格变化后用集合SQL一次性重算持仓的 price、current_value、profit_rate
+ *
+ * 按主键区间分块执行UPDATE，避免单条语句锁住某个币种的全部持仓；
+ * 收益率公式与 AssetService.calculateProfitRate 保持一致（保留两位小数、四舍五入后乘100）。
+ * 每块在同一事务内先把市值变化量加到持有者的组合汇总上，再更新持仓，汇总不需要重算
+ */
+@Service
+public class AssetRevaluationService {
+
+    private static final String REVALUE_SQL = "UPDATE assets SET price = ?, current_value = quantity * ?, "
+            + "profit_rate = CASE WHEN cost_price > 0 AND quantity <> 0 "
+            + "THEN ROUND((quantity * ? - cost_price * quantity) / (cost_price * quantity), 2) * 100 "
+            + "ELSE profit_rate END, updated_at = ? "
+            + "WHERE crypto_type = ? AND id BETWEEN ? AND ?";
+
+    private static final int MAX_RECENT_RESULTS = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PortfolioAggregateBatchRepository portfolioAggregateBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long chunkSize;
+    private final Deque<RevaluationResult> recentResults = new ArrayDeque<>();
+
+    public AssetRevaluationService(JdbcTemplate jdbcTemplate,
+                                   PortfolioAggregateBatchRepository portfolioAggregateBatchRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${asset.revaluation.chunk-size:5000}") long chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.portfolioAggregateBatchRepository = portfolioAggregateBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    // 按新价格重估持有该币种的所有资产，返回更新行数和耗时
+    public RevaluationResult revalue(String symbol, BigDecimal price) {
+        long start = System.nanoTime();
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM assets WHERE crypto_type = ?", symbol);
+        Number minId = (Number) range.get("min_id");
+        Number maxId = (Number) range.get("max_id");
+
+        long rows = 0;
+        int chunks = 0;
+        if (minId != null && maxId != null) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (long from = minId.longValue(); from <= maxId.longValue(); from += chunkSize) {
+                long chunkFrom = from;
+                long to = Math.min(from + chunkSize - 1, maxId.longValue());
+                Integer updated = transactionTemplate.execute(status -> {
+                    portfolioAggregateBatchRepository.applyRevaluation(symbol, price, chunkFrom, to);
+                    return jdbcTemplate.update(REVALUE_SQL, price, price, price, now, symbol, chunkFrom, to);
+                });
+                rows += updated == null ? 0 : updated;
+                chunks++;
+            }
+        }
+
+        RevaluationResult result = new RevaluationResult(symbol, price, rows, chunks,
+                (System.nanoTime() - start) / 1_000_000, LocalDateTime.now());
+        record(result);
+        if (rows > 0) {
+            eventPublisher.publishEvent(new AssetsRevaluedEvent(symbol, price));
+        }
+        System.out.println("资产重估完成: " + symbol + " 价格 " + price + "，更新 " + rows + " 行，分 "
+                + chunks + " 块，耗时 " + result.elapsedMs() + " ms");
+        return result;
+    }
+
+    // 最近的重估记录（新的在前）
+    public synchronized List<RevaluationResult> getRecentResults() {
+        return new ArrayList<>(recentResults);
+    }
+
+    private synchronized void record(RevaluationResult result) {
+        recentResults.addFirst(result);
+        if (recentResults.size() > MAX_RECENT_RESULTS) {
+            recentResults.removeLast();
+        }
+    }
+
+    /**
+     * 一次重估的结果
+     */
+    public record RevaluationResult(String symbol,
+                                    BigDecimal price,
+                                    long rowsUpdated,
+                                    int chunks,
+                                    long elapsedMs,
+                                    LocalDateTime finishedAt) {
+    }
+}
@@ -1,29 +1,73 @@
 package com.example.backend.service;
 
+import com.example.backend.common.FixedPoint;
+import com.example.backend.common.Lttb;
 import com.example.backend.entity.Asset;
 import com.example.backend.entity.AssetHistory;
+import com.example.backend.repository.AssetHistoryBucket;
 import com.example.backend.repository.AssetHistoryRepository;
 import com.example.backend.repository.AssetRepository;
+import com.example.backend.repository.AssetSummary;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 @Service
 public class AssetService {
 
+    // 历史数据支持的粒度（桶长，秒）
+    private static final Map<String, Long> HISTORY_RESOLUTIONS = new LinkedHashMap<>();
+
+    static {
+        HISTORY_RESOLUTIONS.put("5m", 300L);
+        HISTORY_RESOLUTIONS.put("1h", 3600L);
+        HISTORY_RESOLUTIONS.put("1d", 86400L);
+        HISTORY_RESOLUTIONS.put("1w", 604800L);
+    }
+
+    // 单次查询的最大桶数（一年的5分钟粒度约10.5万个）
+    private static final long MAX_HISTORY_BUCKETS = 120_000;
+
+    // 分桶基准时间，与SQL中的基准一致；1970-01-05是周一，周粒度从周一开始
+    private static final LocalDateTime HISTORY_EPOCH = LocalDateTime.of(1970, 1, 5, 0, 0);
+
+    // 增量快照的关键帧间隔（秒）：每天的每日层级快照写入全部资产
+    private static final long HISTORY_KEYFRAME_SECONDS = 86400;
+
     @Autowired
     private AssetRepository assetRepository;
     
     @Autowired
     private AssetHistoryRepository assetHistoryRepository;
 
+    @Autowired
+    private AssetHistoryCache assetHistoryCache;
+
+    @Autowired
+    private AssetSnapshotWriter assetSnapshotWriter;
+
+    @Autowired
+    private PortfolioAggregateService portfolioAggregateService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // 获取用户的所有资产，并自动更新价格和相关计算
     public List<Asset> getAllAssets(Long userId) {
         List<Asset> assets = assetRepository.findByUserId(userId);
@@ -31,12 +75,9 @@ public class AssetService {
         return assets;
     }
 
-    // 根据资产类型获取资产
-    public List<Asset> getAssetsByType(Long userId, String type) {
-        // 暂时返回空列表，实际项目中应根据userId和type查询
-        return assetRepository.findAll().stream()
-                .filter(asset -> type.equals(asset.getType()))
-                .collect(Collectors.toList());
+    // 根据用户和资产类型分页获取资产（轻量投影，只扫描该用户该类型的索引范围）
+    public Page<AssetSummary> getAssetsByType(Long userId, String type, int page, int size) {
+        return assetRepository.findSummariesByUserIdAndType(userId, type, PageRequest.of(page, size));
     }
 
     // 添加新资产
@@ -45,6 +86,7 @@ public class AssetService {
         Asset savedAsset = assetRepository.save(asset);
         // 保存资产快照
         saveAssetSnapshot(savedAsset);
+        publishChanged(savedAsset);
         return savedAsset;
     }
 
@@ -82,6 +124,7 @@ public class AssetService {
         Asset updatedAsset = assetRepository.save(existingAsset);
         // 保存资产快照
         saveAssetSnapshot(updatedAsset);
+        publishChanged(updatedAsset);
         return updatedAsset;
     }
     
@@ -93,46 +136,80 @@ public class AssetService {
 
     // 删除资产
     public void deleteAsset(Long assetId) {
+        Asset asset = assetRepository.findById(assetId).orElse(null);
         assetRepository.deleteById(assetId);
+        if (asset != null && asset.getUser() != null) {
+            eventPublisher.publishEvent(AssetChangedEvent.deleted(asset.getUser().getId(), assetId));
+        }
+    }
+
+    // 通知资产分布缓存等下游组件：持有该Symbol的资产已逐行重估
+    public void publishRevalued(String symbol, BigDecimal price) {
+        eventPublisher.publishEvent(new AssetsRevaluedEvent(symbol, price));
+    }
+
+    // 通知组合估值引擎等下游组件资产已变化
+    private void publishChanged(Asset asset) {
+        if (asset.getUser() != null && asset.getUser().getId() != null) {
+            eventPublisher.publishEvent(AssetChangedEvent.saved(asset));
+        }
     }
 
-    // 计算收益率
+    // 计算收益率：优先用定点数计算，输入超过6位小数或中间结果超出long范围时回退到BigDecimal，两种方式结果相同
     public void calculateProfitRate(Asset asset) {
         if (asset.getCostPrice() != null && asset.getCostPrice().compareTo(BigDecimal.ZERO) > 0) {
+            try {
+                long percent = FixedPoint.profitRatePercent(FixedPoint.ofExact(asset.getCurrentValue()),
+                        FixedPoint.ofExact(asset.getCostPrice()), FixedPoint.ofExact(asset.getQuantity()));
+                asset.setProfitRate(FixedPoint.percentToBigDecimal(percent));
+                return;
+            } catch (ArithmeticException e) {
+                // 回退到BigDecimal
+            }
             BigDecimal profit = asset.getCurrentValue().subtract(asset.getCostPrice().multiply(asset.getQuantity()));
             BigDecimal cost = asset.getCostPrice().multiply(asset.getQuantity());
             asset.setProfitRate(profit.divide(cost, 2, BigDecimal.ROUND_HALF_UP).multiply(new BigDecimal(100)));
         }
     }
 
-    // 获取资产统计信息（用于饼图展示）
-    public List<Map<String, Object>> getAssetDistribution(Long userId) {
-        List<Asset> assets = assetRepository.findAll();
-        BigDecimal totalValue = assets.stream()
-                .map(Asset::getCurrentValue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        return assets.stream().map(asset -> {
-            Map<String, Object> distribution = new HashMap<>();
-            distribution.put("name", asset.getName());
-            distribution.put("value", asset.getCurrentValue().divide(totalValue, 4, BigDecimal.ROUND_HALF_UP).multiply(new BigDecimal(100)));
-            distribution.put("amount", asset.getCurrentValue());
-            distribution.put("rateText", String.format("%.1f%%", distribution.get("value")));
-            return distribution;
-        }).collect(Collectors.toList());
+    // 按现价重估单个资产：更新价格、市值（数量×价格）和收益率，只修改实体不保存
+    // 数量为0时收益率没有意义，保留原值（与集合SQL重估一致）
+    public void revalue(Asset asset, BigDecimal price) {
+        asset.setPrice(price);
+        try {
+            long fixedPrice = FixedPoint.ofExact(price);
+            long quantity = FixedPoint.ofExact(asset.getQuantity());
+            // 乘积按HALF_UP保留6位，与写入scale=6的列时数据库的舍入结果相同
+            asset.setCurrentValue(FixedPoint.toBigDecimal(FixedPoint.multiply(quantity, fixedPrice)));
+            if (asset.getCostPrice() != null && asset.getCostPrice().compareTo(BigDecimal.ZERO) > 0 && quantity != 0) {
+                asset.setProfitRate(FixedPoint.percentToBigDecimal(
+                        FixedPoint.profitRatePercent(fixedPrice, FixedPoint.ofExact(asset.getCostPrice()))));
+            }
+            return;
+        } catch (ArithmeticException e) {
+            // 回退到BigDecimal
+        }
+        asset.setCurrentValue(asset.getQuantity().multiply(price));
+        if (asset.getQuantity().signum() != 0) {
+            calculateProfitRate(asset);
+        }
     }
-    
-    // 获取资产统计数据
+
+    // 获取资产统计数据：读取按用户维护的组合汇总，不扫描资产表
     public Map<String, Object> getAssetStats(Long userId) {
+        PortfolioAggregateService.PortfolioStats aggregate = portfolioAggregateService.getStats(userId);
         Map<String, Object> stats = new HashMap<>();
-        // 暂时返回模拟数据
-        stats.put("totalAssets", 0);
-        stats.put("totalValue", BigDecimal.ZERO);
-        stats.put("totalProfit", BigDecimal.ZERO);
+        stats.put("totalAssets", aggregate.totalAssets());
+        stats.put("totalValue", aggregate.totalValue());
+        stats.put("totalCost", aggregate.totalCost());
+        stats.put("totalProfit", aggregate.totalProfit());
+        stats.put("profitRate", aggregate.profitRate());
+        stats.put("dailyChange", aggregate.dailyChange());
+        stats.put("monthlyChange", aggregate.monthlyChange());
         return stats;
     }
     
-    // 保存资产快照
+    // 保存资产快照（新增/修改资产时的单条快照，不属于任何层级）
     public void saveAssetSnapshot(Asset asset) {
         AssetHistory assetHistory = new AssetHistory();
         assetHistory.setAsset(asset);
@@ -143,69 +220,136 @@ public class AssetService {
         assetHistory.setProfitRate(asset.getProfitRate());
         assetHistory.setCryptoType(asset.getCryptoType());
         assetHistory.setSnapshotTime(LocalDateTime.now());
+        assetHistory.setTierMask(0);
         
         assetHistoryRepository.save(assetHistory);
     }
     
-    // 保存所有资产的快照
-    public void saveAllAssetsSnapshot() {
-        List<Asset> allAssets = assetRepository.findAll();
-        for (Asset asset : allAssets) {
-            saveAssetSnapshot(asset);
+    // 保存所有资产的快照，每条记录标记本轮覆盖的层级，同一轮共用一个快照时间；返回写入的行数。
+    // 按主键区间并行处理，区间内分块流式读取并批量写入，每块单独提交
+    public int saveAllAssetsSnapshot(int tierMask) {
+        int rows = assetSnapshotWriter.writeAll(LocalDateTime.now(), tierMask);
+        eventPublisher.publishEvent(new AssetSnapshotTakenEvent(LocalDateTime.now()));
+        return rows;
+    }
+    
+    // 按预设范围（7days、30days，默认7天）计算起始时间
+    public LocalDateTime startOfRange(String timeRange, LocalDateTime endTime) {
+        if ("30days".equals(timeRange)) {
+            return endTime.minusDays(30);
         }
+        return endTime.minusDays(7);
     }
     
-    // 根据用户ID和时间范围获取资产历史数据
-    public List<Map<String, Object>> getAssetHistory(Long userId, String timeRange) {
-        // 计算时间范围
-        LocalDateTime endTime = LocalDateTime.now();
-        LocalDateTime startTime;
-        
-        if ("7days".equals(timeRange)) {
-            startTime = endTime.minusDays(7);
-        } else if ("30days".equals(timeRange)) {
-            startTime = endTime.minusDays(30);
-        } else {
-            startTime = endTime.minusDays(7); // 默认7天
+    // 根据用户ID、时间范围和粒度（5m、1h、1d、1w）获取资产历史数据；
+    // 分桶和取每个资产桶内最后一条快照都在一条SQL中完成；
+    // 起止时间按所在的桶对齐，已关闭的桶从缓存读取，只有尚未关闭的桶每次重新查询；
+    // 没有快照的桶按资产沿用上一个值，再按币种汇总市值和成本计算收益率（数量为0的持仓成本为0，不再计入）。
+    // maxPoints不为空且桶数超过它时，按币种用LTTB降采样后合并
+    public List<Map<String, Object>> getAssetHistory(Long userId, LocalDateTime startTime, LocalDateTime endTime,
+                                                     String resolution, Integer maxPoints) {
+        Long bucketSeconds = HISTORY_RESOLUTIONS.get(resolution);
+        if (bucketSeconds == null) {
+            throw new IllegalArgumentException("不支持的粒度: " + resolution + "，可选: " + HISTORY_RESOLUTIONS.keySet());
         }
-        
-        // 获取用户的所有资产
-        List<Asset> assets = assetRepository.findByUserId(userId);
-        if (assets.isEmpty()) {
-            return new ArrayList<>();
+        if (!startTime.isBefore(endTime) || (maxPoints != null && maxPoints < 3)) {
+            throw new IllegalArgumentException("时间范围或点数参数不正确");
         }
-        
-        // 获取所有资产的历史记录
-        List<AssetHistory> allHistory = new ArrayList<>();
-        for (Asset asset : assets) {
-            List<AssetHistory> assetHistory = assetHistoryRepository.findByAssetIdAndSnapshotTimeBetween(
-                    asset.getId(), startTime, endTime);
-            allHistory.addAll(assetHistory);
+        if (Duration.between(startTime, endTime).getSeconds() / bucketSeconds > MAX_HISTORY_BUCKETS) {
+            throw new IllegalArgumentException("时间范围过大，请使用更粗的粒度");
         }
+        DateTimeFormatter labelFormat = bucketSeconds < 86400
+                ? DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm") : DateTimeFormatter.ISO_LOCAL_DATE;
         
-        // 按时间分组
-        Map<LocalDateTime, Map<String, Object>> historyByTime = new HashMap<>();
+        // 增量快照只在持仓变化时写入，没有快照的桶沿用该资产上一个值；
+        // 向前多读一个关键帧间隔（一天），取得范围起点之前的值
+        long startBucket = Math.floorDiv(Duration.between(HISTORY_EPOCH, startTime).getSeconds(), bucketSeconds);
+        long endBucket = Math.floorDiv(Duration.between(HISTORY_EPOCH, endTime).getSeconds(), bucketSeconds);
+        long seedBucket = startBucket - (HISTORY_KEYFRAME_SECONDS + bucketSeconds - 1) / bucketSeconds;
+        List<AssetHistoryBucket> rows = assetHistoryCache.load(userId, bucketSeconds, HISTORY_EPOCH, seedBucket, endBucket);
+        // 沿用到当前时间所在的桶为止，不补未来的桶
+        long nowBucket = Math.floorDiv(Duration.between(HISTORY_EPOCH, LocalDateTime.now()).getSeconds(), bucketSeconds);
+        long lastBucket = rows.isEmpty() ? seedBucket
+                : Math.min(endBucket, Math.max(nowBucket, rows.get(rows.size() - 1).getBucket()));
         
-        for (AssetHistory history : allHistory) {
-            // 按日期分组（忽略时间）
-            LocalDateTime dateKey = history.getSnapshotTime().toLocalDate().atStartOfDay();
-            Map<String, Object> dayData = historyByTime.computeIfAbsent(dateKey, k -> {
-                Map<String, Object> data = new HashMap<>();
-                data.put("date", dateKey.toLocalDate().toString());
-                return data;
-            });
-            
-            // 添加资产数据 - 使用 currentValue 而不是 profitRate，因为前端需要的是占比数据
-            // 这里我们返回的是固定比率，因为用户要求比率不变，只变动价值
-            dayData.put(history.getCryptoType(), history.getProfitRate());
+        // 结果已按桶排序，逐桶合并成每个桶一行：{date, BTC: 收益率, ETH: 收益率, ...}
+        Map<Long, Map<String, Object>> historyByBucket = new LinkedHashMap<>();
+        Map<String, List<HistoryPoint>> series = new LinkedHashMap<>();
+        Map<Long, AssetHistoryBucket> latestByAsset = new HashMap<>();
+        Map<String, BigDecimal> latest = new LinkedHashMap<>();
+        int next = 0;
+        for (long bucket = seedBucket; bucket <= lastBucket; bucket++) {
+            boolean changed = false;
+            for (; next < rows.size() && rows.get(next).getBucket() == bucket; next++) {
+                latestByAsset.put(rows.get(next).getAssetId(), rows.get(next));
+                changed = true;
+            }
+            if (changed) {
+                latest = profitRateByCrypto(latestByAsset.values());
+            }
+            if (bucket < startBucket || latest.isEmpty()) {
+                continue;
+            }
+            Map<String, Object> bucketData = new HashMap<>(latest);
+            bucketData.put("date", HISTORY_EPOCH.plusSeconds(bucket * bucketSeconds).format(labelFormat));
+            historyByBucket.put(bucket, bucketData);
+            // 返回收益率，前端按币种展示
+            for (Map.Entry<String, BigDecimal> value : latest.entrySet()) {
+                if (value.getValue() != null) {
+                    series.computeIfAbsent(value.getKey(), k -> new ArrayList<>())
+                            .add(new HistoryPoint(bucket, value.getValue().doubleValue()));
+                }
+            }
         }
         
-        // 转换为列表并按时间排序
-        List<Map<String, Object>> result = historyByTime.values().stream()
-                .sorted((a, b) -> a.get("date").toString().compareTo(b.get("date").toString()))
-                .collect(Collectors.toList());
+        if (maxPoints == null || historyByBucket.size() <= maxPoints || series.isEmpty()) {
+            return new ArrayList<>(historyByBucket.values());
+        }
         
-        // 如果没有历史数据，返回空列表
+        // 每个币种分到相同的点数预算，各自选出保留形状的桶，取并集后输出这些桶的完整一行
+        int perSeries = Math.max(3, maxPoints / series.size());
+        Set<Long> keep = new TreeSet<>();
+        for (List<HistoryPoint> points : series.values()) {
+            double[] x = new double[points.size()];
+            double[] y = new double[points.size()];
+            for (int i = 0; i < x.length; i++) {
+                x[i] = points.get(i).bucket();
+                y[i] = points.get(i).value();
+            }
+            for (int index : Lttb.select(x, y, perSeries)) {
+                keep.add(points.get(index).bucket());
+            }
+        }
+        List<Map<String, Object>> result = new ArrayList<>(keep.size());
+        for (Long bucket : keep) {
+            result.add(historyByBucket.get(bucket));
+        }
         return result;
     }
+
+    // 按币种汇总各资产的市值和成本，收益率计算方式与单个资产相同（保留2位小数后乘100）；成本为0的币种不输出
+    private static Map<String, BigDecimal> profitRateByCrypto(Iterable<AssetHistoryBucket> assets) {
+        Map<String, BigDecimal[]> totals = new TreeMap<>();
+        for (AssetHistoryBucket asset : assets) {
+            if (asset.getCryptoType() == null || asset.getCost() == null || asset.getCurrentValue() == null) {
+                continue;
+            }
+            BigDecimal[] total = totals.computeIfAbsent(asset.getCryptoType(), k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            total[0] = total[0].add(asset.getCurrentValue());
+            total[1] = total[1].add(asset.getCost());
+        }
+        Map<String, BigDecimal> rates = new LinkedHashMap<>();
+        for (Map.Entry<String, BigDecimal[]> total : totals.entrySet()) {
+            BigDecimal value = total.getValue()[0];
+            BigDecimal cost = total.getValue()[1];
+            if (cost.signum() > 0) {
+                rates.put(total.getKey(), value.subtract(cost).divide(cost, 2, RoundingMode.HALF_UP).multiply(new BigDecimal(100)));
+            }
+        }
+        return rates;
+    }
+
+    // 一个币种在某个桶的收益率，用于降采样
+    private record HistoryPoint(long bucket, double value) {
+    }
 }
\ No newline at end of file
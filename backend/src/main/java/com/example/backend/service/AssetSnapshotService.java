@@ -0,0 +1,195 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.AssetHistory;
+import com.example.backend.entity.SnapshotRun;
+import com.example.backend.repository.SnapshotRunRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分层资产快照：每5分钟一个时间点，每个时间点只做一次全量快照，
+ * 写入的每条记录用 tier_mask 标记它同时属于哪些层级（5分钟、整点、每日1点）
+ *
+ * 上一轮还没结束时跳过本轮；被跳过或被调度延迟错过的时间点，其层级合并到下一次实际执行中，
+ * 不会丢失整点/每日快照。每一轮的耗时、行数和结果记录在 snapshot_runs 表中；
+ * 重启后第一次执行时从最近一次成功记录恢复上次的时间点，停机期间错过的层级同样合并到这一次
+ */
+@Service
+public class AssetSnapshotService {
+
+    private static final long TICK_MINUTES = 5;
+    private static final int DAILY_HOUR = 1;
+    private static final int ALL_TIERS = AssetHistory.TIER_5M | AssetHistory.TIER_1H | AssetHistory.TIER_1D;
+
+    private final AssetService assetService;
+    private final AssetSnapshotWriter assetSnapshotWriter;
+    private final PortfolioAggregateService portfolioAggregateService;
+    private final SnapshotRunRepository snapshotRunRepository;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    // 最近一次成功执行覆盖到的时间点
+    private volatile LocalDateTime lastTick;
+    // 是否已从 snapshot_runs 恢复过 lastTick
+    private volatile boolean lastTickRestored;
+
+    private final AtomicLong completedRuns = new AtomicLong();
+    private final AtomicLong failedRuns = new AtomicLong();
+    private final AtomicLong skippedRuns = new AtomicLong();
+
+    public AssetSnapshotService(AssetService assetService,
+                                AssetSnapshotWriter assetSnapshotWriter,
+                                PortfolioAggregateService portfolioAggregateService,
+                                SnapshotRunRepository snapshotRunRepository) {
+        this.assetService = assetService;
+        this.assetSnapshotWriter = assetSnapshotWriter;
+        this.portfolioAggregateService = portfolioAggregateService;
+        this.snapshotRunRepository = snapshotRunRepository;
+    }
+
+    // 对当前时间点执行一次快照；上一轮仍在执行时跳过并返回false
+    public boolean runTick(LocalDateTime now) {
+        LocalDateTime tick = tickOf(now);
+        if (!running.compareAndSet(false, true)) {
+            skippedRuns.incrementAndGet();
+            System.out.println("上一轮资产快照尚未完成，跳过本轮: " + tick);
+            record(tiersBetween(lastTick, tick), now, 0, SnapshotRun.STATUS_SKIPPED, null, null);
+            return false;
+        }
+        restoreLastTick();
+        int tierMask = tiersBetween(lastTick, tick);
+        long begin = System.nanoTime();
+        try {
+            System.out.println("开始保存资产快照，层级: " + describe(tierMask));
+            int rows = assetService.saveAllAssetsSnapshot(tierMask);
+            lastTick = tick;
+            completedRuns.incrementAndGet();
+            long durationMs = (System.nanoTime() - begin) / 1_000_000;
+            record(tierMask, now, durationMs, SnapshotRun.STATUS_SUCCESS, rows, null);
+            System.out.println("资产快照保存完成，" + rows + " 条，耗时 " + durationMs + " ms");
+            rollPortfolioAggregates();
+            return true;
+        } catch (Exception e) {
+            failedRuns.incrementAndGet();
+            long durationMs = (System.nanoTime() - begin) / 1_000_000;
+            record(tierMask, now, durationMs, SnapshotRun.STATUS_FAILED, null, e.getMessage());
+            System.err.println("保存资产快照失败: " + e.getMessage());
+            return false;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>(assetSnapshotWriter.getMetrics());
+        metrics.put("running", running.get());
+        metrics.put("lastTick", lastTick);
+        metrics.put("completedRuns", completedRuns.get());
+        metrics.put("failedRuns", failedRuns.get());
+        metrics.put("skippedRuns", skippedRuns.get());
+        return metrics;
+    }
+
+    // 启动后第一次执行前，用最近一次成功执行的时间点作为lastTick；读取失败时下次再试
+    private void restoreLastTick() {
+        if (lastTickRestored) {
+            return;
+        }
+        try {
+            snapshotRunRepository.findTopByStatusOrderByIdDesc(SnapshotRun.STATUS_SUCCESS)
+                    .ifPresent(run -> lastTick = tickOf(run.getStartedAt()));
+            lastTickRestored = true;
+        } catch (Exception e) {
+            System.err.println("读取上次快照记录失败: " + e.getMessage());
+        }
+    }
+
+    // 最近的快照执行记录
+    public List<SnapshotRun> getRecentRuns() {
+        return snapshotRunRepository.findTop20ByOrderByIdDesc();
+    }
+
+    // 向下取整到5分钟的时间点
+    static LocalDateTime tickOf(LocalDateTime time) {
+        LocalDateTime minute = time.truncatedTo(ChronoUnit.MINUTES);
+        return minute.minusMinutes(minute.getMinute() % TICK_MINUTES);
+    }
+
+    // 一个时间点所属的层级
+    static int tiersAt(LocalDateTime tick) {
+        int tiers = AssetHistory.TIER_5M;
+        if (tick.getMinute() == 0) {
+            tiers |= AssetHistory.TIER_1H;
+            if (tick.getHour() == DAILY_HOUR) {
+                tiers |= AssetHistory.TIER_1D;
+            }
+        }
+        return tiers;
+    }
+
+    // (from, to] 内所有时间点的层级合并；from为空（从未成功执行过）时只看to
+    static int tiersBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null || !from.isBefore(to)) {
+            return tiersAt(to);
+        }
+        if (Duration.between(from, to).toDays() >= 1) {
+            return ALL_TIERS;
+        }
+        int tiers = 0;
+        for (LocalDateTime tick = from.plusMinutes(TICK_MINUTES); !tick.isAfter(to); tick = tick.plusMinutes(TICK_MINUTES)) {
+            tiers |= tiersAt(tick);
+        }
+        return tiers;
+    }
+
+    private static String describe(int tierMask) {
+        StringBuilder text = new StringBuilder();
+        if ((tierMask & AssetHistory.TIER_5M) != 0) {
+            text.append("5m ");
+        }
+        if ((tierMask & AssetHistory.TIER_1H) != 0) {
+            text.append("1h ");
+        }
+        if ((tierMask & AssetHistory.TIER_1D) != 0) {
+            text.append("1d ");
+        }
+        return text.toString().trim();
+    }
+
+    // 记录一次执行；记录失败不影响快照本身
+    private void record(int tierMask, LocalDateTime startedAt, long durationMs, String status,
+                        Integer rowCount, String errorMessage) {
+        try {
+            SnapshotRun run = new SnapshotRun();
+            run.setTierMask(tierMask);
+            run.setStartedAt(startedAt);
+            run.setFinishedAt(LocalDateTime.now());
+            run.setDurationMs(durationMs);
+            run.setRowCount(rowCount);
+            run.setStatus(status);
+            if (errorMessage != null && errorMessage.length() > 500) {
+                errorMessage = errorMessage.substring(0, 500);
+            }
+            run.setErrorMessage(errorMessage);
+            snapshotRunRepository.save(run);
+        } catch (Exception e) {
+            System.err.println("记录快照执行结果失败: " + e.getMessage());
+        }
+    }
+
+    // 快照后在跨天/跨月后的第一次快照时记录组合的日/月开盘市值
+    private void rollPortfolioAggregates() {
+        try {
+            portfolioAggregateService.rollOpenValues(LocalDateTime.now());
+        } catch (Exception e) {
+            System.err.println("滚动组合开盘市值失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.backend.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一轮全量资产快照写入完成，finishedAt 之前的快照不会再新增
+ */
+public record AssetSnapshotTakenEvent(LocalDateTime finishedAt) {
+}
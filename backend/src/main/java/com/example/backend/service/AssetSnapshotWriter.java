@@ -0,0 +1,238 @@
+package com.example.backend.service;
+
+import com.example.backend.common.FixedPoint;
+import com.example.backend.entity.AssetHistory;
+import com.example.backend.repository.AssetHistoryBatchRepository;
+import com.example.backend.repository.AssetSnapshotRow;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流式资产快照写入：把资产主键空间切成若干连续区间，由固定大小的线程池并行处理；
+ * 每个区间内按主键游标每次读取 chunkSize 个资产，批量插入快照后立即提交，内存占用只与块大小和线程数有关
+ *
+ * 线程数不超过连接池大小减去留给请求和其他任务的连接数。区间记录已提交到的主键，
+ * 失败的区间从该位置继续重试（已提交的块不会重复写入），成功的区间不再重跑；
+ * 同一轮所有区间共用调用方给定的快照时间。重试用尽仍有区间失败时抛出RuntimeException
+ *
+ * 增量模式下只为数量、价格或成本价相对该资产最近一条快照变化超过 epsilon（相对误差）的资产写入快照，
+ * 读取方按资产把上一个值向后沿用。最近一条快照在分块读取时由数据库关联取得，不占用堆内存，重启后也不需要重写全部资产。
+ * 每日层级（TIER_1D）的一轮写入全部资产作为关键帧，因此向前最多回看一天即可找到每个资产的起始值
+ */
+@Service
+public class AssetSnapshotWriter {
+
+    // 连接池中留给接口请求和其他定时任务的连接数
+    private static final int RESERVED_CONNECTIONS = 2;
+    // 每个线程平均分到的区间数，区间越多负载越均衡
+    private static final int PARTITIONS_PER_WORKER = 4;
+
+    private final AssetHistoryBatchRepository assetHistoryBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int workers;
+    private final int maxAttempts;
+    private final boolean deltaEnabled;
+    private final double deltaEpsilon;
+    private final ExecutorService executor;
+
+    // 当前（或最近一次）执行的各区间进度
+    private volatile List<Partition> partitions = List.of();
+
+    public AssetSnapshotWriter(AssetHistoryBatchRepository assetHistoryBatchRepository,
+                               TransactionTemplate transactionTemplate,
+                               DataSource dataSource,
+                               @Value("${asset.snapshot.chunk-size:1000}") int chunkSize,
+                               @Value("${asset.snapshot.workers:4}") int workers,
+                               @Value("${asset.snapshot.max-attempts:3}") int maxAttempts,
+                               @Value("${asset.snapshot.delta-enabled:true}") boolean deltaEnabled,
+                               @Value("${asset.snapshot.delta-epsilon:0.0001}") double deltaEpsilon) {
+        this.assetHistoryBatchRepository = assetHistoryBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.deltaEnabled = deltaEnabled;
+        this.deltaEpsilon = Math.max(0, deltaEpsilon);
+        if (dataSource instanceof HikariDataSource hikari) {
+            workers = Math.min(workers, hikari.getMaximumPoolSize() - RESERVED_CONNECTIONS);
+        }
+        this.workers = Math.max(1, workers);
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workers, r -> {
+            Thread thread = new Thread(r, "asset-snapshot-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // 为所有资产（增量模式下为有变化的资产）写入一条快照，返回写入的行数
+    public int writeAll(LocalDateTime snapshotTime, int tierMask) {
+        long[] range = assetHistoryBatchRepository.findIdRange();
+        if (range == null) {
+            partitions = List.of();
+            return 0;
+        }
+        boolean keyframe = !deltaEnabled || (tierMask & AssetHistory.TIER_1D) != 0;
+        List<Partition> run = split(range[0], range[1]);
+        partitions = run;
+
+        List<Partition> pending = run;
+        for (int attempt = 1; attempt <= maxAttempts && !pending.isEmpty(); attempt++) {
+            List<Future<?>> futures = new ArrayList<>(pending.size());
+            for (Partition partition : pending) {
+                futures.add(executor.submit(() -> partition.process(snapshotTime, tierMask, keyframe)));
+            }
+            for (Future<?> future : futures) {
+                await(future);
+            }
+            pending = pending.stream().filter(partition -> !partition.done).toList();
+            if (!pending.isEmpty()) {
+                System.err.println("资产快照有 " + pending.size() + " 个区间失败（第" + attempt + "次），"
+                        + (attempt < maxAttempts ? "从断点重试" : "不再重试"));
+            }
+        }
+
+        int written = run.stream().mapToInt(partition -> partition.written).sum();
+        if (!pending.isEmpty()) {
+            throw new RuntimeException("资产快照未完成：" + pending.size() + " 个区间失败，已写入 " + written
+                    + " 条，最后错误: " + pending.get(0).lastError);
+        }
+        return written;
+    }
+
+    public Map<String, Object> getMetrics() {
+        List<Map<String, Object>> progress = new ArrayList<>();
+        for (Partition partition : partitions) {
+            progress.add(partition.toMap());
+        }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("workers", workers);
+        metrics.put("chunkSize", chunkSize);
+        metrics.put("deltaEnabled", deltaEnabled);
+        metrics.put("deltaEpsilon", deltaEpsilon);
+        metrics.put("partitions", progress);
+        return metrics;
+    }
+
+    // 把 [minId, maxId] 切成等宽区间，区间宽度不小于一个块
+    private List<Partition> split(long minId, long maxId) {
+        long span = maxId - minId + 1;
+        long count = Math.max(1, Math.min((long) workers * PARTITIONS_PER_WORKER, span / chunkSize));
+        long width = (span + count - 1) / count;
+        List<Partition> result = new ArrayList<>();
+        for (long from = minId; from <= maxId; from += width) {
+            result.add(new Partition(from, Math.min(maxId, from + width - 1)));
+        }
+        return List.copyOf(result);
+    }
+
+    // 与最近一条快照相比数量、价格或成本价有变化；还没有快照的资产视为有变化
+    private boolean changed(AssetSnapshotRow row) {
+        return row.lastQuantity() == null || row.lastPrice() == null || row.lastCostPrice() == null
+                || differs(FixedPoint.of(row.quantity()), FixedPoint.of(row.lastQuantity()))
+                || differs(FixedPoint.of(row.price()), FixedPoint.of(row.lastPrice()))
+                || differs(FixedPoint.of(row.costPrice()), FixedPoint.of(row.lastCostPrice()));
+    }
+
+    private boolean differs(long current, long previous) {
+        return Math.abs((double) current - previous) > deltaEpsilon * Math.abs((double) previous);
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("资产快照被中断", e);
+        } catch (ExecutionException e) {
+            // 区间内部已记录错误，按未完成处理
+        }
+    }
+
+    /**
+     * 主键区间 [fromId, toId] 的快照进度；cursor 为已提交的最后一个主键，重试时从这里继续
+     */
+    private final class Partition {
+
+        final long fromId;
+        final long toId;
+        volatile long cursor;
+        volatile int written;
+        volatile int unchanged;
+        volatile int attempts;
+        volatile boolean done;
+        volatile String lastError;
+
+        Partition(long fromId, long toId) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.cursor = fromId - 1;
+        }
+
+        void process(LocalDateTime snapshotTime, int tierMask, boolean keyframe) {
+            attempts++;
+            try {
+                while (true) {
+                    long after = cursor;
+                    Chunk chunk = transactionTemplate.execute(status -> {
+                        List<AssetSnapshotRow> rows = assetHistoryBatchRepository.findAssetChunk(after, toId, chunkSize, !keyframe);
+                        List<AssetSnapshotRow> changed = keyframe ? rows
+                                : rows.stream().filter(AssetSnapshotWriter.this::changed).toList();
+                        assetHistoryBatchRepository.insertSnapshots(changed, snapshotTime, tierMask);
+                        return new Chunk(rows, changed);
+                    });
+                    if (chunk == null || chunk.read().isEmpty()) {
+                        break;
+                    }
+                    // 提交后才推进游标
+                    cursor = chunk.read().get(chunk.read().size() - 1).id();
+                    written += chunk.written().size();
+                    unchanged += chunk.read().size() - chunk.written().size();
+                    if (chunk.read().size() < chunkSize) {
+                        break;
+                    }
+                }
+                done = true;
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                System.err.println("资产快照区间 [" + fromId + ", " + toId + "] 在主键 " + cursor + " 之后失败: " + e.getMessage());
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("fromId", fromId);
+            map.put("toId", toId);
+            map.put("cursor", cursor);
+            map.put("written", written);
+            map.put("unchanged", unchanged);
+            map.put("attempts", attempts);
+            map.put("done", done);
+            map.put("lastError", lastError);
+            return map;
+        }
+    }
+
+    private record Chunk(List<AssetSnapshotRow> read, List<AssetSnapshotRow> written) {
+    }
+}
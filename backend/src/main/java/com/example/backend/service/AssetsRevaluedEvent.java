@@ -0,0 +1,9 @@
+package com.example.backend.service;
+
+import java.math.BigDecimal;
+
+/**
+ * 持有某个Symbol的资产已按新价格重估（current_value、profit_rate 已写入数据库）
+ */
+public record AssetsRevaluedEvent(String symbol, BigDecimal price) {
+}
@@ -2,53 +2,116 @@ package com.example.backend.service;
 
 import com.example.backend.entity.Cryptocurrency;
 import com.example.backend.entity.Asset;
+import com.example.backend.feed.DifyPriceFeed;
+import com.example.backend.feed.FileReplayPriceFeed;
+import com.example.backend.feed.LastKnownGoodStore;
+import com.example.backend.feed.PriceFeed;
+import com.example.backend.repository.CryptocurrencyBatchRepository;
 import com.example.backend.repository.CryptocurrencyRepository;
 import com.example.backend.repository.AssetRepository;
+import com.example.backend.repository.PortfolioAggregateBatchRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import com.example.backend.service.AssetService;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
-
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class CryptocurrencyService {
 
     private final CryptocurrencyRepository cryptocurrencyRepository;
-    private final String difyApiUrl;
-    private final String difyApiKey;
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    private final CryptocurrencyBatchRepository cryptocurrencyBatchRepository;
     private final AssetRepository assetRepository;
     private final AssetService assetService;
+    private final PriceBoard priceBoard;
+    private final AssetRevaluationService assetRevaluationService;
+    private final AssetRevaluationQueue assetRevaluationQueue;
+    private final PortfolioAggregateBatchRepository portfolioAggregateBatchRepository;
+    private final boolean bulkRevaluationEnabled;
+    private final boolean asyncRevaluationEnabled;
+    private final Map<String, PriceFeed> priceFeeds;
+    private final DifyPriceFeed difyPriceFeed;
+    private final FileReplayPriceFeed fileReplayPriceFeed;
+    private final String activeFeedName;
+    private final int ingestBatchSize;
+    private final TransactionTemplate transactionTemplate;
+    private final LastKnownGoodStore lastKnownGoodStore;
+
+    private final AtomicReference<CompletableFuture<List<Cryptocurrency>>> inFlightFetch = new AtomicReference<>();
+    private final AtomicLong coalescedFetches = new AtomicLong();
+    private final AtomicLong fallbackFetches = new AtomicLong();
 
     public CryptocurrencyService(CryptocurrencyRepository cryptocurrencyRepository,
-                                 @Value("${dify.api.url}") String difyApiUrl,
-                                 @Value("${dify.api.key}") String difyApiKey,
+                                 CryptocurrencyBatchRepository cryptocurrencyBatchRepository,
                                  AssetRepository assetRepository,
-                                 AssetService assetService) {
+                                 AssetService assetService,
+                                 PriceBoard priceBoard,
+                                 AssetRevaluationService assetRevaluationService,
+                                 AssetRevaluationQueue assetRevaluationQueue,
+                                 PortfolioAggregateBatchRepository portfolioAggregateBatchRepository,
+                                 @Value("${asset.revaluation.bulk-enabled:true}") boolean bulkRevaluationEnabled,
+                                 @Value("${asset.revaluation.async-enabled:true}") boolean asyncRevaluationEnabled,
+                                 List<PriceFeed> priceFeeds,
+                                 DifyPriceFeed difyPriceFeed,
+                                 FileReplayPriceFeed fileReplayPriceFeed,
+                                 @Value("${price-feed.active:dify}") String activeFeedName,
+                                 @Value("${price-feed.ingest-batch-size:50}") int ingestBatchSize,
+                                 TransactionTemplate transactionTemplate,
+                                 LastKnownGoodStore lastKnownGoodStore) {
         this.cryptocurrencyRepository = cryptocurrencyRepository;
-        this.difyApiUrl = difyApiUrl;
-        this.difyApiKey = difyApiKey;
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+        this.cryptocurrencyBatchRepository = cryptocurrencyBatchRepository;
         this.assetRepository = assetRepository;
         this.assetService = assetService;
+        this.priceBoard = priceBoard;
+        this.assetRevaluationService = assetRevaluationService;
+        this.assetRevaluationQueue = assetRevaluationQueue;
+        this.portfolioAggregateBatchRepository = portfolioAggregateBatchRepository;
+        this.bulkRevaluationEnabled = bulkRevaluationEnabled;
+        this.asyncRevaluationEnabled = asyncRevaluationEnabled;
+        this.priceFeeds = new HashMap<>();
+        for (PriceFeed feed : priceFeeds) {
+            this.priceFeeds.put(feed.getName(), feed);
+        }
+        this.difyPriceFeed = difyPriceFeed;
+        this.fileReplayPriceFeed = fileReplayPriceFeed;
+        this.activeFeedName = activeFeedName;
+        this.ingestBatchSize = ingestBatchSize;
+        this.transactionTemplate = transactionTemplate;
+        this.lastKnownGoodStore = lastKnownGoodStore;
+    }
+
+    // 应用启动后从数据库加载价格看板，数据库为空时才写入一次硬编码数据
+    @EventListener(ApplicationReadyEvent.class)
+    public void initPriceBoard() {
+        try {
+            List<Cryptocurrency> existing = cryptocurrencyRepository.findAll();
+            if (existing.isEmpty()) {
+                fetchAndSaveCryptocurrencyDataWithHardcoded();
+            } else {
+                priceBoard.replaceAll(existing);
+            }
+            System.out.println("价格看板已加载，共 " + priceBoard.getAll().size() + " 种加密货币");
+        } catch (Exception e) {
+            System.err.println("价格看板初始化失败: " + e.getMessage());
+        }
     }
 
     // 获取所有加密货币数据
@@ -56,6 +119,21 @@ public class CryptocurrencyService {
         return cryptocurrencyRepository.findAll();
     }
 
+    // 从内存价格看板获取所有报价，不访问数据库
+    public List<PriceQuote> getAllPrices() {
+        return priceBoard.getAll();
+    }
+
+    // 获取价格看板当前快照（报价与版本号保持一致）
+    public PriceBoard.Snapshot getPriceSnapshot() {
+        return priceBoard.current();
+    }
+
+    // 获取指定看板版本之后变化的报价
+    public PriceBoard.Delta getPriceChangesSince(long since) {
+        return priceBoard.changesSince(since);
+    }
+
     // 根据ID获取加密货币
     public Cryptocurrency getCryptocurrencyById(Long id) {
         return cryptocurrencyRepository.findById(id)
@@ -68,85 +146,163 @@ public class CryptocurrencyService {
                 .orElseThrow(() -> new RuntimeException("加密货币不存在"));
     }
 
-    // 保存加密货币
-    public Cryptocurrency saveCryptocurrency(Cryptocurrency cryptocurrency) {
-        Optional<Cryptocurrency> existing = cryptocurrencyRepository.findBySymbol(cryptocurrency.getSymbol());
-        if (existing.isPresent()) {
-            Cryptocurrency update = existing.get();
-            update.setName(cryptocurrency.getName());
-            update.setPrice(cryptocurrency.getPrice());
-            update.setPriceCurrency(cryptocurrency.getPriceCurrency());
-            // 更新新增的字段
-            update.setMarketCap(cryptocurrency.getMarketCap());
-            update.setChange24h(cryptocurrency.getChange24h());
-            update.setVolume24h(cryptocurrency.getVolume24h());
-            update.setUpdatedAt(LocalDateTime.now());
-            return cryptocurrencyRepository.save(update);
-        } else {
-            if (cryptocurrency.getCreatedAt() == null) {
-                cryptocurrency.setCreatedAt(LocalDateTime.now());
+    // 根据Symbol获取报价：优先读价格看板，看板中没有时才查数据库
+    public PriceQuote getQuoteBySymbol(String symbol) {
+        return priceBoard.get(symbol)
+                .orElseGet(() -> PriceQuote.from(getCryptocurrencyBySymbol(symbol)));
+    }
+
+    // 批量获取报价：看板命中的直接返回，未命中的合并成一次findBySymbolIn查询；
+    // 结果按请求顺序排列，数据库中也不存在的Symbol不出现在结果中
+    public Map<String, PriceQuote> getQuotes(Collection<String> symbols) {
+        Map<String, PriceQuote> quotes = new LinkedHashMap<>();
+        List<String> misses = new ArrayList<>();
+        PriceBoard.Snapshot snapshot = priceBoard.current();
+        for (String symbol : symbols) {
+            if (quotes.containsKey(symbol)) {
+                continue;
+            }
+            PriceQuote quote = snapshot.bySymbol().get(symbol);
+            // 先占位保证结果顺序与请求一致
+            quotes.put(symbol, quote);
+            if (quote == null) {
+                misses.add(symbol);
             }
-            if (cryptocurrency.getUpdatedAt() == null) {
-                cryptocurrency.setUpdatedAt(LocalDateTime.now());
+        }
+        if (!misses.isEmpty()) {
+            for (Cryptocurrency crypto : cryptocurrencyRepository.findBySymbolIn(misses)) {
+                quotes.put(crypto.getSymbol(), PriceQuote.from(crypto));
             }
-            return cryptocurrencyRepository.save(cryptocurrency);
         }
+        quotes.values().removeIf(quote -> quote == null);
+        return quotes;
+    }
+
+    // 保存加密货币：内部调用不经过代理，需要自己开启事务，upsert、回查和提交后刷新看板才在同一事务中
+    @Transactional
+    public Cryptocurrency saveCryptocurrency(Cryptocurrency cryptocurrency) {
+        return saveAllCryptocurrencies(List.of(cryptocurrency)).get(0);
     }
 
-    // 批量保存加密货币
+    // 批量保存加密货币：一次JDBC批量upsert加一次按Symbol回查，不再逐条findBySymbol
+    @Transactional
     public List<Cryptocurrency> saveAllCryptocurrencies(List<Cryptocurrency> cryptocurrencies) {
         LocalDateTime now = LocalDateTime.now();
-        List<Cryptocurrency> toSave = new ArrayList<>();
         
+        // 同一批次中重复的Symbol以最后一条为准
+        Map<String, Cryptocurrency> bySymbol = new LinkedHashMap<>();
         for (Cryptocurrency crypto : cryptocurrencies) {
-            Optional<Cryptocurrency> existing = cryptocurrencyRepository.findBySymbol(crypto.getSymbol());
-            if (existing.isPresent()) {
-                // 更新现有记录
-                Cryptocurrency update = existing.get();
-                update.setName(crypto.getName());
-                update.setPrice(crypto.getPrice());
-                update.setPriceCurrency(crypto.getPriceCurrency());
-                // 更新新增的字段
-                update.setMarketCap(crypto.getMarketCap());
-                update.setChange24h(crypto.getChange24h());
-                update.setVolume24h(crypto.getVolume24h());
-                update.setUpdatedAt(now);
-                toSave.add(update);
-            } else {
-                // 新增记录
-                if (crypto.getCreatedAt() == null) {
-                    crypto.setCreatedAt(now);
-                }
-                if (crypto.getUpdatedAt() == null) {
-                    crypto.setUpdatedAt(now);
-                }
-                toSave.add(crypto);
+            bySymbol.put(crypto.getSymbol(), crypto);
+        }
+        if (bySymbol.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        cryptocurrencyBatchRepository.upsertAll(bySymbol.values(), now);
+        List<Cryptocurrency> saved = cryptocurrencyRepository.findBySymbolIn(bySymbol.keySet());
+        
+        // 按传入顺序返回
+        Map<String, Cryptocurrency> savedBySymbol = new HashMap<>();
+        for (Cryptocurrency crypto : saved) {
+            savedBySymbol.put(crypto.getSymbol(), crypto);
+        }
+        List<Cryptocurrency> result = new ArrayList<>();
+        for (String symbol : bySymbol.keySet()) {
+            Cryptocurrency crypto = savedBySymbol.get(symbol);
+            if (crypto != null) {
+                result.add(crypto);
             }
         }
-        return cryptocurrencyRepository.saveAll(toSave);
+        publishToBoard(result, false);
+        return result;
     }
 
     // 从Dify API获取并存储加密货币数据
-    @Transactional
+    // 并发请求共用同一次进行中的采集；Dify失败或熔断时返回最近一次成功采集的行情，不再清空重建。
+    // 不在外层开启事务：流式采集每批单独提交，前面的批次在工作流仍在输出时就已可见
     public List<Cryptocurrency> fetchAndSaveCryptocurrencyData() {
+        CompletableFuture<List<Cryptocurrency>> call = new CompletableFuture<>();
+        CompletableFuture<List<Cryptocurrency>> inFlight = inFlightFetch.compareAndExchange(null, call);
+        if (inFlight != null) {
+            coalescedFetches.incrementAndGet();
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+            }
+        }
+        try {
+            List<Cryptocurrency> result = fetchWithFallback();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightFetch.compareAndSet(call, null);
+        }
+    }
+    
+    // 采集指标：是否有进行中的采集、被合并的请求数、走后备数据的次数以及Dify熔断器状态
+    public Map<String, Object> getFetchMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("inFlight", inFlightFetch.get() != null);
+        metrics.put("coalesced", coalescedFetches.get());
+        metrics.put("fallback", fallbackFetches.get());
+        metrics.put("circuitBreaker", difyPriceFeed.getCircuitBreaker().toMap());
+        return metrics;
+    }
+    
+    private List<Cryptocurrency> fetchWithFallback() {
         try {
-            // 先尝试从Dify API获取数据
-            return fetchAndSaveCryptocurrencyDataFromDify();
+            List<Cryptocurrency> saved = fetchAndSaveCryptocurrencyDataFromDify();
+            lastKnownGoodStore.save(saved);
+            return saved;
         } catch (Exception e) {
-            System.err.println("从Dify API获取数据失败，使用硬编码的JSON数据作为后备方案: " + e.getMessage());
-            // 使用硬编码的JSON数据作为后备方案
-            return fetchAndSaveCryptocurrencyDataWithHardcoded();
+            fallbackFetches.incrementAndGet();
+            System.err.println("从Dify API获取数据失败，使用最近一次成功采集的行情: " + e.getMessage());
+            return transactionTemplate.execute(status -> loadLastKnownGood());
+        }
+    }
+    
+    // 后备数据：本地last-known-good文件（还没有时用内置后备行情），只补齐数据库中缺失的Symbol，
+    // 已有的行情不覆盖也不删除
+    private List<Cryptocurrency> loadLastKnownGood() {
+        List<Cryptocurrency> lastKnownGood = lastKnownGoodStore.load()
+                .orElseGet(() -> fileReplayPriceFeed.loadSingleFrame(FileReplayPriceFeed.FALLBACK_LOCATION));
+        List<String> symbols = new ArrayList<>();
+        for (Cryptocurrency crypto : lastKnownGood) {
+            symbols.add(crypto.getSymbol());
+        }
+        Map<String, Cryptocurrency> existing = new HashMap<>();
+        for (Cryptocurrency crypto : cryptocurrencyRepository.findBySymbolIn(symbols)) {
+            existing.put(crypto.getSymbol(), crypto);
+        }
+        List<Cryptocurrency> missing = new ArrayList<>();
+        for (Cryptocurrency crypto : lastKnownGood) {
+            if (!existing.containsKey(crypto.getSymbol())) {
+                missing.add(crypto);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Cryptocurrency crypto : saveAllCryptocurrencies(missing)) {
+                existing.put(crypto.getSymbol(), crypto);
+            }
+            System.out.println("已从后备行情补齐 " + missing.size() + " 种缺失的加密货币");
+        }
+        List<Cryptocurrency> result = new ArrayList<>();
+        for (String symbol : symbols) {
+            result.add(existing.get(symbol));
         }
+        return result;
     }
     
-    // 使用硬编码的JSON数据来测试数据库保存功能
+    // 使用内置后备行情文件（feeds/fallback-prices.json）重置数据库中的加密货币数据
     @Transactional
     public List<Cryptocurrency> fetchAndSaveCryptocurrencyDataWithHardcoded() {
         try {
-            // 使用完整的45种加密货币数据，包含市值、24h涨幅和24h成交量字段
-            String jsonString = "[{\"name\":\"比特币\",\"symbol\":\"BTC\",\"price\":605828.06,\"price_currency\":\"CNY\",\"market_cap\":11830000000000,\"change_24h\":2.34,\"volume_24h\":125000000000},{\"name\":\"以太币\",\"symbol\":\"ETH\",\"price\":20820.10,\"price_currency\":\"CNY\",\"market_cap\":2490000000000,\"change_24h\":-1.56,\"volume_24h\":85000000000},{\"name\":\"泰达币\",\"symbol\":\"USDT\",\"price\":7.04,\"price_currency\":\"CNY\",\"market_cap\":1050000000000,\"change_24h\":0.01,\"volume_24h\":250000000000},{\"name\":\"币安币\",\"symbol\":\"BNB\",\"price\":6027.10,\"price_currency\":\"CNY\",\"market_cap\":960000000000,\"change_24h\":3.78,\"volume_24h\":12000000000},{\"name\":\"瑞波币\",\"symbol\":\"XRP\",\"price\":13.30,\"price_currency\":\"CNY\",\"market_cap\":720000000000,\"change_24h\":5.21,\"volume_24h\":35000000000},{\"name\":\"美元币\",\"symbol\":\"USDC\",\"price\":7.04,\"price_currency\":\"CNY\",\"market_cap\":580000000000,\"change_24h\":0.02,\"volume_24h\":180000000000},{\"name\":\"Solana\",\"symbol\":\"SOL\",\"price\":895.20,\"price_currency\":\"CNY\",\"market_cap\":460000000000,\"change_24h\":-2.89,\"volume_24h\":42000000000},{\"name\":\"波场币\",\"symbol\":\"TRX\",\"price\":1.96,\"price_currency\":\"CNY\",\"market_cap\":120000000000,\"change_24h\":1.45,\"volume_24h\":8000000000},{\"name\":\"狗狗币\",\"symbol\":\"DOGE\",\"price\":0.9113,\"price_currency\":\"CNY\",\"market_cap\":126000000000,\"change_24h\":-0.78,\"volume_24h\":6500000000},{\"name\":\"艾达币\",\"symbol\":\"ADA\",\"price\":2.72,\"price_currency\":\"CNY\",\"market_cap\":92000000000,\"change_24h\":4.32,\"volume_24h\":15000000000},{\"name\":\"比特币现金\",\"symbol\":\"BCH\",\"price\":3788.70,\"price_currency\":\"CNY\",\"market_cap\":78000000000,\"change_24h\":-0.34,\"volume_24h\":4800000000},{\"name\":\"Hyperliquid\",\"symbol\":\"HYPE\",\"price\":192.65,\"price_currency\":\"CNY\",\"market_cap\":65000000000,\"change_24h\":2.15,\"volume_24h\":3200000000},{\"name\":\"Chainlink\",\"symbol\":\"LINK\",\"price\":90.32,\"price_currency\":\"CNY\",\"market_cap\":58000000000,\"change_24h\":-1.23,\"volume_24h\":8500000000},{\"name\":\"莱特币\",\"symbol\":\"LTC\",\"price\":2488.50,\"price_currency\":\"CNY\",\"market_cap\":52000000000,\"change_24h\":3.67,\"volume_24h\":6800000000},{\"name\":\"Polkadot\",\"symbol\":\"DOT\",\"price\":28.50,\"price_currency\":\"CNY\",\"market_cap\":45000000000,\"change_24h\":-0.89,\"volume_24h\":5200000000},{\"name\":\"Toncoin\",\"symbol\":\"TON\",\"price\":234.50,\"price_currency\":\"CNY\",\"market_cap\":42000000000,\"change_24h\":4.56,\"volume_24h\":7800000000},{\"name\":\"Filecoin\",\"symbol\":\"FIL\",\"price\":385.20,\"price_currency\":\"CNY\",\"market_cap\":38000000000,\"change_24h\":-2.34,\"volume_24h\":4500000000},{\"name\":\"Cosmos\",\"symbol\":\"ATOM\",\"price\":128.40,\"price_currency\":\"CNY\",\"market_cap\":36000000000,\"change_24h\":1.78,\"volume_24h\":6200000000},{\"name\":\"Stellar\",\"symbol\":\"XLM\",\"price\":5.67,\"price_currency\":\"CNY\",\"market_cap\":32000000000,\"change_24h\":-0.56,\"volume_24h\":3800000000},{\"name\":\"Avalanche\",\"symbol\":\"AVAX\",\"price\":198.30,\"price_currency\":\"CNY\",\"market_cap\":30000000000,\"change_24h\":2.90,\"volume_24h\":5800000000},{\"name\":\"Monero\",\"symbol\":\"XMR\",\"price\":1756.20,\"price_currency\":\"CNY\",\"market_cap\":28000000000,\"change_24h\":-1.34,\"volume_24h\":4200000000},{\"name\":\"Cardano\",\"symbol\":\"ADA\",\"price\":2.72,\"price_currency\":\"CNY\",\"market_cap\":92000000000,\"change_24h\":4.32,\"volume_24h\":15000000000},{\"name\":\"Polygon\",\"symbol\":\"MATIC\",\"price\":6.89,\"price_currency\":\"CNY\",\"market_cap\":78000000000,\"change_24h\":-0.67,\"volume_24h\":8500000000},{\"name\":\"DogeCoin\",\"symbol\":\"DOGE\",\"price\":0.9113,\"price_currency\":\"CNY\",\"market_cap\":126000000000,\"change_24h\":-0.78,\"volume_24h\":6500000000},{\"name\":\"Solana\",\"symbol\":\"SOL\",\"price\":895.20,\"price_currency\":\"CNY\",\"market_cap\":460000000000,\"change_24h\":-2.89,\"volume_24h\":42000000000},{\"name\":\"Polkadot\",\"symbol\":\"DOT\",\"price\":28.50,\"price_currency\":\"CNY\",\"market_cap\":45000000000,\"change_24h\":-0.89,\"volume_24h\":5200000000},{\"name\":\"Avalanche\",\"symbol\":\"AVAX\",\"price\":198.30,\"price_currency\":\"CNY\",\"market_cap\":30000000000,\"change_24h\":2.90,\"volume_24h\":5800000000},{\"name\":\"Cosmos\",\"symbol\":\"ATOM\",\"price\":128.40,\"price_currency\":\"CNY\",\"market_cap\":36000000000,\"change_24h\":1.78,\"volume_24h\":6200000000},{\"name\":\"Stellar\",\"symbol\":\"XLM\",\"price\":5.67,\"price_currency\":\"CNY\",\"market_cap\":32000000000,\"change_24h\":-0.56,\"volume_24h\":3800000000},{\"name\":\"Chainlink\",\"symbol\":\"LINK\",\"price\":90.32,\"price_currency\":\"CNY\",\"market_cap\":58000000000,\"change_24h\":-1.23,\"volume_24h\":8500000000},{\"name\":\"Toncoin\",\"symbol\":\"TON\",\"price\":234.50,\"price_currency\":\"CNY\",\"market_cap\":42000000000,\"change_24h\":4.56,\"volume_24h\":7800000000},{\"name\":\"Filecoin\",\"symbol\":\"FIL\",\"price\":385.20,\"price_currency\":\"CNY\",\"market_cap\":38000000000,\"change_24h\":-2.34,\"volume_24h\":4500000000},{\"name\":\"莱特币\",\"symbol\":\"LTC\",\"price\":2488.50,\"price_currency\":\"CNY\",\"market_cap\":52000000000,\"change_24h\":3.67,\"volume_24h\":6800000000},{\"name\":\"Monero\",\"symbol\":\"XMR\",\"price\":1756.20,\"price_currency\":\"CNY\",\"market_cap\":28000000000,\"change_24h\":-1.34,\"volume_24h\":4200000000},{\"name\":\"Hyperliquid\",\"symbol\":\"HYPE\",\"price\":192.65,\"price_currency\":\"CNY\",\"market_cap\":65000000000,\"change_24h\":2.15,\"volume_24h\":3200000000},{\"name\":\"比特币现金\",\"symbol\":\"BCH\",\"price\":3788.70,\"price_currency\":\"CNY\",\"market_cap\":78000000000,\"change_24h\":-0.34,\"volume_24h\":4800000000},{\"name\":\"美元币\",\"symbol\":\"USDC\",\"price\":7.04,\"price_currency\":\"CNY\",\"market_cap\":580000000000,\"change_24h\":0.02,\"volume_24h\":180000000000},{\"name\":\"瑞波币\",\"symbol\":\"XRP\",\"price\":13.30,\"price_currency\":\"CNY\",\"market_cap\":720000000000,\"change_24h\":5.21,\"volume_24h\":35000000000},{\"name\":\"币安币\",\"symbol\":\"BNB\",\"price\":6027.10,\"price_currency\":\"CNY\",\"market_cap\":960000000000,\"change_24h\":3.78,\"volume_24h\":12000000000},{\"name\":\"泰达币\",\"symbol\":\"USDT\",\"price\":7.04,\"price_currency\":\"CNY\",\"market_cap\":1050000000000,\"change_24h\":0.01,\"volume_24h\":250000000000},{\"name\":\"以太币\",\"symbol\":\"ETH\",\"price\":20820.10,\"price_currency\":\"CNY\",\"market_cap\":2490000000000,\"change_24h\":-1.56,\"volume_24h\":85000000000},{\"name\":\"比特币\",\"symbol\":\"BTC\",\"price\":605828.06,\"price_currency\":\"CNY\",\"market_cap\":11830000000000,\"change_24h\":2.34,\"volume_24h\":125000000000}]";
-            
-            System.out.println("使用硬编码的JSON数据，包含45种加密货币");
+            List<Cryptocurrency> cryptocurrencies = fileReplayPriceFeed.loadSingleFrame(FileReplayPriceFeed.FALLBACK_LOCATION);
+            System.out.println("使用内置后备行情数据，包含 " + cryptocurrencies.size() + " 种加密货币");
 
             // 删除所有现有记录，避免出现重复symbol的问题
             long count = cryptocurrencyRepository.count();
@@ -159,45 +315,11 @@ public class CryptocurrencyService {
                 System.out.println("已重置id序列，id将从1开始");
             }
 
-            // 解析为JSON数组
-            JsonNode dataNode = objectMapper.readTree(jsonString);
-            if (!dataNode.isArray()) {
-                throw new RuntimeException("解析后的数据不是JSON数组");
-            }
-            
-            System.out.println("JSON数组包含 " + dataNode.size() + " 个元素");
-
-            // 转换为实体类列表，直接创建新记录
-            List<Cryptocurrency> cryptocurrencies = new ArrayList<>();
-            for (JsonNode node : dataNode) {
-                // 创建新记录
-                Cryptocurrency crypto = new Cryptocurrency();
-                
-                // 设置所有字段
-                crypto.setName(node.path("name").asText());
-                crypto.setSymbol(node.path("symbol").asText());
-                crypto.setPrice(new BigDecimal(node.path("price").asText()));
-                crypto.setPriceCurrency(node.path("price_currency").asText());
-                
-                // 解析新增的字段
-                if (node.has("market_cap")) {
-                    String marketCapStr = node.path("market_cap").asText();
-                    crypto.setMarketCap(new BigDecimal(marketCapStr));
-                }
-                if (node.has("change_24h")) {
-                    String change24hStr = node.path("change_24h").asText();
-                    crypto.setChange24h(new BigDecimal(change24hStr));
-                }
-                if (node.has("volume_24h")) {
-                    String volume24hStr = node.path("volume_24h").asText();
-                    crypto.setVolume24h(new BigDecimal(volume24hStr));
-                }
-                
-                cryptocurrencies.add(crypto);
-                System.out.println("创建加密货币对象: " + crypto.getName() + " (" + crypto.getSymbol() + ")");
+            LocalDateTime now = LocalDateTime.now();
+            for (Cryptocurrency crypto : cryptocurrencies) {
+                crypto.setCreatedAt(now);
+                crypto.setUpdatedAt(now);
             }
-            
-            System.out.println("处理了 " + cryptocurrencies.size() + " 个加密货币对象");
 
             // 保存到数据库
             List<Cryptocurrency> savedCryptos = cryptocurrencyRepository.saveAll(cryptocurrencies);
@@ -208,124 +330,69 @@ public class CryptocurrencyService {
                 throw new RuntimeException("保存到数据库失败，返回空列表");
             }
             
+            publishToBoard(savedCryptos, true);
             return savedCryptos;
         } catch (Exception e) {
-            System.err.println("使用硬编码JSON数据也失败: " + e.getMessage());
+            System.err.println("使用内置后备行情数据也失败: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("获取加密货币数据失败: " + e.getMessage(), e);
         }
     }
     
     // 从Dify API获取并存储加密货币数据（原始方法）
-    @Transactional
     public List<Cryptocurrency> fetchAndSaveCryptocurrencyDataFromDify() {
         try {
-            // 确保ObjectMapper能够正确处理BigDecimal
-            objectMapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
-            
-            // 调用Dify API
-            System.out.println("正在调用Dify API...");
-            
-            // 设置请求头
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(difyApiKey);
-            
-            // 设置请求体
-            String requestBody = "{\"inputs\": {}, \"response_mode\": \"blocking\", \"user\": \"abc-123\"}";
-            HttpEntity<String> requestEntity = new HttpEntity<>(requestBody, headers);
-            
-            // 发送POST请求
-            ResponseEntity<String> responseEntity = restTemplate.postForEntity(difyApiUrl, requestEntity, String.class);
-            String response = responseEntity.getBody();
-
-            System.out.println("Dify API原始响应: " + response);
-
-            // 检查响应是否为空
-            if (response == null) {
-                throw new RuntimeException("Dify API响应为空");
-            }
-
-            // 解析响应
-            JsonNode rootNode = objectMapper.readTree(response);
-            System.out.println("解析后的根节点: " + rootNode);
-            
-            // 检查根节点是否包含text字段
-            if (!rootNode.has("text")) {
-                throw new RuntimeException("Dify API响应不包含text字段");
-            }
-            
-            JsonNode textNode = rootNode.path("text");
-            String textContent = textNode.asText();
-            System.out.println("提取的text内容: " + textContent);
-
-            // 移除JSON代码块标记
-            String jsonString = textContent;
-            
-            // 移除 ```json 和 ``` 标记
-            jsonString = jsonString.replaceAll("```json", "");
-            jsonString = jsonString.replaceAll("```", "");
-            
-            // 移除多余的换行符和空格
-            jsonString = jsonString.trim();
-            System.out.println("处理后的JSON字符串: " + jsonString);
-
-            // 验证JSON字符串是否为空
-            if (jsonString.isEmpty()) {
-                throw new RuntimeException("处理后的JSON字符串为空");
-            }
-
-            // 解析为JSON数组
-            JsonNode dataNode = objectMapper.readTree(jsonString);
-            if (!dataNode.isArray()) {
-                throw new RuntimeException("解析后的数据不是JSON数组");
-            }
-            
-            System.out.println("JSON数组包含 " + dataNode.size() + " 个元素");
-
-            // 转换为实体类列表
-            List<Cryptocurrency> cryptocurrencies = new ArrayList<>();
-            for (JsonNode node : dataNode) {
-                Cryptocurrency crypto = new Cryptocurrency();
-                crypto.setName(node.path("name").asText());
-                crypto.setSymbol(node.path("symbol").asText());
-                crypto.setPrice(new BigDecimal(node.path("price").asText()));
-                crypto.setPriceCurrency(node.path("price_currency").asText());
-                
-                // 解析新增的字段
-                if (node.has("market_cap")) {
-                    crypto.setMarketCap(new BigDecimal(node.path("market_cap").asText()));
-                }
-                if (node.has("change_24h")) {
-                    crypto.setChange24h(new BigDecimal(node.path("change_24h").asText()));
-                }
-                if (node.has("volume_24h")) {
-                    crypto.setVolume24h(new BigDecimal(node.path("volume_24h").asText()));
-                }
-                
-                cryptocurrencies.add(crypto);
-                System.out.println("创建加密货币对象: " + crypto);
-            }
-            
-            System.out.println("创建了 " + cryptocurrencies.size() + " 个加密货币对象");
-
-            // 保存到数据库
-            List<Cryptocurrency> savedCryptos = cryptocurrencyRepository.saveAll(cryptocurrencies);
-            System.out.println("总共保存了 " + savedCryptos.size() + " 条加密货币数据到数据库");
-            
-            // 验证保存结果
-            if (savedCryptos.isEmpty()) {
-                throw new RuntimeException("保存到数据库失败，返回空列表");
-            }
-            
-            return savedCryptos;
+            return ingest(difyPriceFeed);
         } catch (Exception e) {
             System.err.println("从Dify API获取加密货币数据失败: " + e.getMessage());
-            e.printStackTrace();
             throw new RuntimeException("获取加密货币数据失败: " + e.getMessage(), e);
         }
     }
     
+    // 从配置的当前数据源（price-feed.active）拉取一批行情并入库
+    public List<Cryptocurrency> ingestFromActiveFeed() {
+        PriceFeed feed = priceFeeds.get(activeFeedName);
+        if (feed == null) {
+            throw new RuntimeException("未知的行情数据源: " + activeFeedName + "，可选: " + priceFeeds.keySet());
+        }
+        return ingest(feed);
+    }
+    
+    // 统一的采集入口：数据源每交出一批就在独立事务中批量upsert入库、刷新价格看板，
+    // 并对价格变化的Symbol触发资产重估
+    private List<Cryptocurrency> ingest(PriceFeed feed) {
+        long start = System.nanoTime();
+        List<Cryptocurrency> saved = new ArrayList<>();
+        feed.fetchInBatches(ingestBatchSize, batch -> {
+            List<Cryptocurrency> savedBatch = transactionTemplate.execute(status -> saveBatch(batch));
+            if (saved.isEmpty()) {
+                System.out.println("数据源 " + feed.getName() + " 首批行情已入库，耗时 "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+            saved.addAll(savedBatch);
+        });
+        System.out.println("从数据源 " + feed.getName() + " 采集 " + saved.size() + " 条行情，耗时 "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return saved;
+    }
+    
+    private List<Cryptocurrency> saveBatch(List<Cryptocurrency> batch) {
+        // 记录入库前的价格，只对价格有变化的Symbol重估
+        Map<String, BigDecimal> previousPrices = new HashMap<>();
+        for (Cryptocurrency crypto : batch) {
+            priceBoard.get(crypto.getSymbol()).ifPresent(quote -> previousPrices.put(quote.symbol(), quote.price()));
+        }
+        
+        List<Cryptocurrency> saved = saveAllCryptocurrencies(batch);
+        for (Cryptocurrency crypto : saved) {
+            BigDecimal previous = previousPrices.get(crypto.getSymbol());
+            if (crypto.getPrice() != null && (previous == null || previous.compareTo(crypto.getPrice()) != 0)) {
+                updateAssetsForCryptocurrency(crypto.getSymbol(), crypto.getPrice());
+            }
+        }
+        return saved;
+    }
+    
     // 更新单个加密货币价格
     @Transactional
     public Cryptocurrency updateCryptocurrencyPrice(String symbol, BigDecimal price) {
@@ -343,6 +410,7 @@ public class CryptocurrencyService {
         // 同时更新所有使用该加密货币的资产
         updateAssetsForCryptocurrency(symbol, price);
         
+        publishToBoard(List.of(updatedCrypto), false);
         return updatedCrypto;
     }
     
@@ -372,23 +440,64 @@ public class CryptocurrencyService {
             updateAssetsForCryptocurrency(symbol, price);
         }
         
+        publishToBoard(updatedCryptocurrencies, false);
         return updatedCryptocurrencies;
     }
     
     // 更新使用特定加密货币的所有资产
     private void updateAssetsForCryptocurrency(String symbol, BigDecimal price) {
+        if (asyncRevaluationEnabled) {
+            // 提交后入队，由后台任务合并重估，价格写入请求立即返回
+            afterCommit(() -> assetRevaluationQueue.offer(symbol, price));
+            return;
+        }
+        if (bulkRevaluationEnabled) {
+            // 集合SQL分块重估，不再逐行加载和保存
+            assetRevaluationService.revalue(symbol, price);
+            return;
+        }
+        
         // 获取所有使用该加密货币的资产
         List<Asset> assets = assetRepository.findByCryptoType(symbol);
+        // 每个用户的市值变化量，用于增量更新组合汇总
+        Map<Long, BigDecimal> deltas = new HashMap<>();
         
         for (Asset asset : assets) {
-            // 更新当前价格
-            asset.setPrice(price);
-            // 重新计算当前价值
-            asset.setCurrentValue(asset.getQuantity().multiply(price));
-            // 重新计算收益率
-            assetService.calculateProfitRate(asset);
+            BigDecimal before = asset.getCurrentValue() == null ? BigDecimal.ZERO : asset.getCurrentValue();
+            // 更新当前价格，重新计算当前价值和收益率（定点数计算）
+            assetService.revalue(asset, price);
             // 保存到数据库
             assetRepository.save(asset);
+            if (asset.getUser() != null) {
+                deltas.merge(asset.getUser().getId(), asset.getCurrentValue().subtract(before), BigDecimal::add);
+            }
+        }
+        portfolioAggregateBatchRepository.addValueDeltas(deltas);
+        assetService.publishRevalued(symbol, price);
+    }
+    
+    // 刷新价格看板：处于事务中时等提交成功后再刷新，避免回滚的数据被读到
+    private void publishToBoard(List<Cryptocurrency> cryptocurrencies, boolean replace) {
+        afterCommit(() -> {
+            if (replace) {
+                priceBoard.replaceAll(cryptocurrencies);
+            } else {
+                priceBoard.putAll(cryptocurrencies);
+            }
+        });
+    }
+    
+    // 处于事务中时在提交成功后执行，否则立即执行
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
     }
 }
\ No newline at end of file
@@ -1,11 +1,9 @@
 package com.example.backend.service;
 
-import com.example.backend.repository.AssetRepository;
 import com.example.backend.repository.ReportRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -13,18 +11,15 @@ import java.util.Map;
 public class DashboardService {
 
     @Autowired
-    private AssetRepository assetRepository;
+    private PortfolioAggregateService portfolioAggregateService;
 
     @Autowired
     private ReportRepository reportRepository;
 
     // 获取仪表盘统计数据
     public Map<String, Object> getDashboardStats(Long userId) {
-        // 获取用户资产
-        long totalAssets = 0; // 简化实现，实际应该从数据库查询
-        
-        // 计算总资产价值
-        BigDecimal totalValue = BigDecimal.ZERO; // 简化实现，实际应该从数据库查询
+        // 资产数、总市值和日/月涨跌取自按用户维护的组合汇总，O(1)查找
+        PortfolioAggregateService.PortfolioStats portfolio = portfolioAggregateService.getStats(userId);
         
         // 计算未读消息数量
         long unreadMessages = 0; // 简化实现，实际应该从数据库查询
@@ -34,10 +29,10 @@ public class DashboardService {
         
         // 构建返回结果
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalAssets", totalAssets);
-        stats.put("totalValue", totalValue);
-        stats.put("dailyChange", 1.24); // 模拟数据，实际应从历史数据计算
-        stats.put("monthlyChange", 5.67); // 模拟数据，实际应从历史数据计算
+        stats.put("totalAssets", portfolio.totalAssets());
+        stats.put("totalValue", portfolio.totalValue());
+        stats.put("dailyChange", portfolio.dailyChange());
+        stats.put("monthlyChange", portfolio.monthlyChange());
         stats.put("unreadMessages", unreadMessages);
         stats.put("pendingReports", pendingReports);
         
@@ -85,4 +85,9 @@ public class MessageService {
         // 实际项目中应将消息推送给相关用户
         return savedMessage;
     }
-}
\ No newline at end of file
+
+    // 批量添加新消息（一个事务内保存）
+    public List<Message> addMessages(List<Message> messages) {
+        return messageRepository.saveAll(messages);
+    }
+}
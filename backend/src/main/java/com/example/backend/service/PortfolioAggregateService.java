@@ -0,0 +1,185 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.PortfolioAggregate;
+import com.example.backend.repository.PortfolioAggregateBatchRepository;
+import com.example.backend.repository.PortfolioAggregateRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户组合汇总：portfolio_aggregates 表按用户保存资产数、总市值、总成本、总盈亏和日/月开盘市值
+ *
+ * 资产写入后只重算该用户（集合SQL）；价格重估在同一事务内按市值变化量增量更新持有者的汇总
+ * （AssetRevaluationService），这里只失效缓存。快照时滚动日/月开盘市值；
+ * 读取走按用户的内存缓存，仪表盘和统计接口都是O(1)查找
+ */
+@Service
+public class PortfolioAggregateService {
+
+    private static final BigDecimal HUNDRED = new BigDecimal(100);
+
+    private final PortfolioAggregateRepository portfolioAggregateRepository;
+    private final PortfolioAggregateBatchRepository portfolioAggregateBatchRepository;
+    // 事件在提交后处理，此时原事务已结束，刷新需要独立的新事务
+    private final TransactionTemplate requiresNew;
+
+    private final Map<Long, PortfolioStats> cache = new ConcurrentHashMap<>();
+    // 每次失效加一；读取期间发生过失效的结果不写入缓存
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    public PortfolioAggregateService(PortfolioAggregateRepository portfolioAggregateRepository,
+                                     PortfolioAggregateBatchRepository portfolioAggregateBatchRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.portfolioAggregateRepository = portfolioAggregateRepository;
+        this.portfolioAggregateBatchRepository = portfolioAggregateBatchRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // 启动时全量重算一次，补上停机期间的变化
+    @EventListener(ApplicationReadyEvent.class)
+    public void initAggregates() {
+        try {
+            refreshAll();
+        } catch (Exception e) {
+            System.err.println("初始化组合汇总失败: " + e.getMessage());
+        }
+    }
+
+    // 获取用户组合汇总，没有记录时返回全零
+    public PortfolioStats getStats(Long userId) {
+        PortfolioStats stats = cache.get(userId);
+        if (stats != null) {
+            hits.incrementAndGet();
+            return stats;
+        }
+        misses.incrementAndGet();
+        long version = invalidations.get();
+        stats = portfolioAggregateRepository.findById(userId)
+                .map(PortfolioStats::from)
+                .orElseGet(() -> PortfolioStats.empty(userId));
+        if (invalidations.get() == version) {
+            cache.put(userId, stats);
+            // 写入缓存的同时发生了失效，撤回这次写入
+            if (invalidations.get() != version) {
+                cache.remove(userId, stats);
+            }
+        }
+        return stats;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssetChanged(AssetChangedEvent event) {
+        try {
+            requiresNew.executeWithoutResult(status -> portfolioAggregateBatchRepository.refreshUser(event.userId()));
+            refreshes.incrementAndGet();
+        } catch (Exception e) {
+            System.err.println("刷新用户组合汇总失败: " + event.userId() + "，" + e.getMessage());
+        }
+        invalidate(List.of(event.userId()));
+    }
+
+    // 汇总已随重估增量更新，只失效持有者的缓存
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssetsRevalued(AssetsRevaluedEvent event) {
+        try {
+            invalidate(portfolioAggregateBatchRepository.findHolders(event.symbol()));
+        } catch (Exception e) {
+            System.err.println("查询持仓用户失败: " + event.symbol() + "，" + e.getMessage());
+            invalidateAll();
+        }
+    }
+
+    // 全量重算所有用户，只在启动时或数据被外部修改后修复时调用
+    public void refreshAll() {
+        requiresNew.executeWithoutResult(status -> portfolioAggregateBatchRepository.refreshAll());
+        refreshes.incrementAndGet();
+        invalidateAll();
+    }
+
+    // 快照后调用：把跨天/跨月用户的当前市值记为开盘市值。汇总值已由资产写入和重估增量维护，
+    // 这里不再全量重算；只有确实滚动了开盘市值时才失效缓存
+    public void rollOpenValues(LocalDateTime snapshotTime) {
+        LocalDate today = snapshotTime.toLocalDate();
+        Integer rolled = requiresNew.execute(status -> portfolioAggregateBatchRepository.rollOpenValues(today));
+        if (rolled != null && rolled > 0) {
+            invalidateAll();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("cachedUsers", cache.size());
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("refreshes", refreshes.get());
+        metrics.put("invalidations", invalidations.get());
+        return metrics;
+    }
+
+    private void invalidate(List<Long> userIds) {
+        invalidations.incrementAndGet();
+        userIds.forEach(cache::remove);
+    }
+
+    private void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.clear();
+    }
+
+    // 相对基准值（开盘市值或成本）的涨跌百分比（保留两位小数），没有基准值时为0
+    private static BigDecimal changePercent(BigDecimal current, BigDecimal open) {
+        if (open == null || open.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        return current.subtract(open).multiply(HUNDRED).divide(open, 2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 一个用户的组合汇总，profitRate 为相对总成本的收益率，
+     * dailyChange/monthlyChange 为相对当日/当月第一次快照时总市值的涨跌百分比
+     */
+    public record PortfolioStats(Long userId,
+                                 int totalAssets,
+                                 BigDecimal totalValue,
+                                 BigDecimal totalCost,
+                                 BigDecimal totalProfit,
+                                 BigDecimal profitRate,
+                                 BigDecimal dailyChange,
+                                 BigDecimal monthlyChange,
+                                 LocalDateTime updatedAt) {
+
+        static PortfolioStats from(PortfolioAggregate aggregate) {
+            return new PortfolioStats(aggregate.getUserId(), aggregate.getTotalAssets(), aggregate.getTotalValue(),
+                    aggregate.getTotalCost(), aggregate.getTotalProfit(),
+                    changePercent(aggregate.getTotalValue(), aggregate.getTotalCost()),
+                    changePercent(aggregate.getTotalValue(), aggregate.getDayOpenValue()),
+                    changePercent(aggregate.getTotalValue(), aggregate.getMonthOpenValue()),
+                    aggregate.getUpdatedAt());
+        }
+
+        static PortfolioStats empty(Long userId) {
+            return new PortfolioStats(userId, 0, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO,
+                    BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, null);
+        }
+    }
+}
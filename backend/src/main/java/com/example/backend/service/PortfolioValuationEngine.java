@@ -0,0 +1,360 @@
+package com.example.backend.service;
+
+import com.example.backend.common.FixedPoint;
+import com.example.backend.entity.Asset;
+import com.example.backend.repository.AssetRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻内存的组合估值引擎：每个用户的持仓以定点数原始数组保存（Symbol编号、数量、成本），
+ * 估值时直接按价格看板的现价计算，不读取数据库中可能已过期的 current_value
+ *
+ * 用户第一次估值时从数据库加载一次持仓，之后由 AssetChangedEvent 在事务提交后按资产ID增量更新（幂等）；
+ * 没有Symbol或看板上没有报价的资产（股票、现金等）按其录入的市值计入。
+ * 常驻用户数超过上限时淘汰最久未估值的用户，下次估值时重新加载
+ */
+@Service
+public class PortfolioValuationEngine {
+
+    private static final int NO_SYMBOL = -1;
+
+    private final AssetRepository assetRepository;
+    private final PriceBoard priceBoard;
+
+    private final int maxUsers;
+    // accessOrder=true，遍历顺序即最久未使用在前；所有访问都在 synchronized (holdingsByUser) 内
+    private final LinkedHashMap<Long, Holdings> holdingsByUser = new LinkedHashMap<>(16, 0.75f, true);
+    // 每次收到资产变更加一；加载期间发生过变更的结果不常驻，避免覆盖提交后的数据
+    private long changes;
+    private final Map<String, Integer> symbolIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSymbolId = new AtomicInteger();
+    private volatile PriceTable priceTable = new PriceTable(Long.MIN_VALUE, new long[0], new boolean[0]);
+
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong eventsApplied = new AtomicLong();
+    private final AtomicLong valuations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PortfolioValuationEngine(AssetRepository assetRepository, PriceBoard priceBoard,
+                                    @Value("${portfolio.engine.max-users:10000}") int maxUsers) {
+        this.assetRepository = assetRepository;
+        this.priceBoard = priceBoard;
+        this.maxUsers = Math.max(1, maxUsers);
+    }
+
+    // 资产写入提交后更新该用户的常驻持仓；尚未加载的用户忽略，下次估值时再从数据库加载
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssetChanged(AssetChangedEvent event) {
+        if (event.userId() == null || event.assetId() == null) {
+            return;
+        }
+        Row row = event.deleted() ? null : toRow(event);
+        synchronized (holdingsByUser) {
+            changes++;
+            Holdings holdings = holdingsByUser.get(event.userId());
+            if (holdings != null) {
+                eventsApplied.incrementAndGet();
+                holdingsByUser.put(event.userId(), row == null ? holdings.without(event.assetId()) : holdings.with(row));
+            }
+        }
+    }
+
+    // 按当前价格看板计算用户组合的市值、盈亏和各资产占比
+    public Valuation valuate(Long userId) {
+        Holdings holdings = resident(userId);
+        PriceTable prices = currentPrices();
+        valuations.incrementAndGet();
+
+        int n = holdings.size();
+        long[] values = new long[n];
+        long[] appliedPrices = new long[n];
+        boolean[] live = new boolean[n];
+        long totalValue = 0;
+        long totalCost = 0;
+        try {
+            for (int i = 0; i < n; i++) {
+                int symbolId = holdings.symbolIds[i];
+                if (prices.has(symbolId)) {
+                    appliedPrices[i] = prices.prices[symbolId];
+                    values[i] = FixedPoint.multiply(holdings.quantities[i], appliedPrices[i]);
+                    live[i] = true;
+                } else {
+                    values[i] = holdings.bookValues[i];
+                }
+                totalValue = Math.addExact(totalValue, values[i]);
+                totalCost = Math.addExact(totalCost, holdings.costs[i]);
+            }
+
+            List<Position> positions = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                positions.add(new Position(holdings.assetIds[i], holdings.names[i], holdings.types[i],
+                        holdings.symbols[i], FixedPoint.toBigDecimal(holdings.quantities[i]),
+                        live[i] ? FixedPoint.toBigDecimal(appliedPrices[i]) : null, live[i],
+                        FixedPoint.toBigDecimal(values[i]), FixedPoint.toBigDecimal(holdings.costs[i]),
+                        FixedPoint.toBigDecimal(Math.subtractExact(values[i], holdings.costs[i])),
+                        totalValue == 0 ? BigDecimal.ZERO
+                                : BigDecimal.valueOf(Math.multiplyExact(FixedPoint.ratio(values[i], totalValue, 4), 100), 4)));
+            }
+            long profit = Math.subtractExact(totalValue, totalCost);
+            BigDecimal profitRate = totalCost <= 0 ? null
+                    : BigDecimal.valueOf(Math.multiplyExact(FixedPoint.ratio(profit, totalCost, 4), 100), 4);
+            return new Valuation(userId, prices.version, FixedPoint.toBigDecimal(totalValue),
+                    FixedPoint.toBigDecimal(totalCost), FixedPoint.toBigDecimal(profit), profitRate, positions);
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("组合市值超出计算范围: " + userId);
+        }
+    }
+
+    // 丢弃某个用户的常驻持仓（例如数据被外部直接修改后），下次估值时重新加载
+    public void evict(Long userId) {
+        synchronized (holdingsByUser) {
+            changes++;
+            holdingsByUser.remove(userId);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        synchronized (holdingsByUser) {
+            metrics.put("residentUsers", holdingsByUser.size());
+        }
+        metrics.put("maxUsers", maxUsers);
+        metrics.put("evictions", evictions.get());
+        metrics.put("symbols", symbolIds.size());
+        metrics.put("priceVersion", priceTable.version);
+        metrics.put("loads", loads.get());
+        metrics.put("eventsApplied", eventsApplied.get());
+        metrics.put("valuations", valuations.get());
+        return metrics;
+    }
+
+    // 取用户的常驻持仓；不在内存时在锁外查询数据库，再放入（期间有变更或已被其他请求放入时不覆盖）
+    private Holdings resident(Long userId) {
+        long version;
+        synchronized (holdingsByUser) {
+            Holdings holdings = holdingsByUser.get(userId);
+            if (holdings != null) {
+                return holdings;
+            }
+            version = changes;
+        }
+        Holdings loaded = load(userId);
+        synchronized (holdingsByUser) {
+            if (version != changes) {
+                return loaded;
+            }
+            Holdings existing = holdingsByUser.putIfAbsent(userId, loaded);
+            if (existing != null) {
+                return existing;
+            }
+            Iterator<Long> eldest = holdingsByUser.keySet().iterator();
+            while (holdingsByUser.size() > maxUsers && eldest.hasNext()) {
+                if (eldest.next().equals(userId)) {
+                    continue;
+                }
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+            return loaded;
+        }
+    }
+
+    private Holdings load(Long userId) {
+        loads.incrementAndGet();
+        Holdings holdings = Holdings.EMPTY;
+        for (Asset asset : assetRepository.findByUserId(userId)) {
+            holdings = holdings.with(new Row(asset.getId(), asset.getName(), asset.getType(), asset.getCryptoType(),
+                    symbolId(asset.getCryptoType()), fixed(asset.getQuantity()),
+                    cost(asset.getCostPrice(), asset.getQuantity()), fixed(asset.getCurrentValue())));
+        }
+        return holdings;
+    }
+
+    private Row toRow(AssetChangedEvent event) {
+        return new Row(event.assetId(), event.name(), event.type(), event.cryptoType(), symbolId(event.cryptoType()),
+                fixed(event.quantity()), cost(event.costPrice(), event.quantity()), fixed(event.currentValue()));
+    }
+
+    // 看板版本变化时重建按Symbol编号索引的价格表；看板上的Symbol在此时全部分配编号
+    private PriceTable currentPrices() {
+        PriceBoard.Snapshot snapshot = priceBoard.current();
+        PriceTable table = priceTable;
+        if (table.version == snapshot.version()) {
+            return table;
+        }
+        for (PriceQuote quote : snapshot.quotes()) {
+            symbolId(quote.symbol());
+        }
+        int size = nextSymbolId.get();
+        long[] prices = new long[size];
+        boolean[] present = new boolean[size];
+        for (PriceQuote quote : snapshot.quotes()) {
+            if (quote.price() == null) {
+                continue;
+            }
+            int id = symbolIds.get(quote.symbol());
+            prices[id] = FixedPoint.of(quote.price());
+            present[id] = true;
+        }
+        table = new PriceTable(snapshot.version(), prices, present);
+        priceTable = table;
+        return table;
+    }
+
+    private int symbolId(String symbol) {
+        if (symbol == null || symbol.isEmpty()) {
+            return NO_SYMBOL;
+        }
+        return symbolIds.computeIfAbsent(symbol, s -> nextSymbolId.getAndIncrement());
+    }
+
+    private static long fixed(BigDecimal value) {
+        return value == null ? 0 : FixedPoint.of(value);
+    }
+
+    private static long cost(BigDecimal costPrice, BigDecimal quantity) {
+        return FixedPoint.multiply(fixed(costPrice), fixed(quantity));
+    }
+
+    /**
+     * 按Symbol编号索引的价格表，present标记看板上是否有该Symbol的价格
+     */
+    private record PriceTable(long version, long[] prices, boolean[] present) {
+
+        boolean has(int symbolId) {
+            return symbolId >= 0 && symbolId < present.length && present[symbolId];
+        }
+    }
+
+    private record Row(long assetId, String name, String type, String symbol, int symbolId,
+                       long quantity, long cost, long bookValue) {
+    }
+
+    /**
+     * 一个用户的持仓，列式数组存储；不可变，每次变更生成新实例后整体替换
+     */
+    private static final class Holdings {
+
+        static final Holdings EMPTY = new Holdings(new long[0], new String[0], new String[0], new String[0],
+                new int[0], new long[0], new long[0], new long[0]);
+
+        final long[] assetIds;
+        final String[] names;
+        final String[] types;
+        final String[] symbols;
+        final int[] symbolIds;
+        final long[] quantities;
+        final long[] costs;
+        final long[] bookValues;
+
+        Holdings(long[] assetIds, String[] names, String[] types, String[] symbols, int[] symbolIds,
+                 long[] quantities, long[] costs, long[] bookValues) {
+            this.assetIds = assetIds;
+            this.names = names;
+            this.types = types;
+            this.symbols = symbols;
+            this.symbolIds = symbolIds;
+            this.quantities = quantities;
+            this.costs = costs;
+            this.bookValues = bookValues;
+        }
+
+        int size() {
+            return assetIds.length;
+        }
+
+        int indexOf(long assetId) {
+            for (int i = 0; i < assetIds.length; i++) {
+                if (assetIds[i] == assetId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // 新增或替换一条持仓（按资产ID）
+        Holdings with(Row row) {
+            int index = indexOf(row.assetId());
+            int n = size();
+            Holdings next = index >= 0 ? copy(n) : copy(n + 1);
+            int i = index >= 0 ? index : n;
+            next.assetIds[i] = row.assetId();
+            next.names[i] = row.name();
+            next.types[i] = row.type();
+            next.symbols[i] = row.symbol();
+            next.symbolIds[i] = row.symbolId();
+            next.quantities[i] = row.quantity();
+            next.costs[i] = row.cost();
+            next.bookValues[i] = row.bookValue();
+            return next;
+        }
+
+        // 移除一条持仓，不存在时返回自身
+        Holdings without(long assetId) {
+            int index = indexOf(assetId);
+            if (index < 0) {
+                return this;
+            }
+            int last = size() - 1;
+            Holdings next = copy(last);
+            if (index < last) {
+                // 用最后一条补位
+                next.assetIds[index] = assetIds[last];
+                next.names[index] = names[last];
+                next.types[index] = types[last];
+                next.symbols[index] = symbols[last];
+                next.symbolIds[index] = symbolIds[last];
+                next.quantities[index] = quantities[last];
+                next.costs[index] = costs[last];
+                next.bookValues[index] = bookValues[last];
+            }
+            return next;
+        }
+
+        private Holdings copy(int length) {
+            return new Holdings(Arrays.copyOf(assetIds, length), Arrays.copyOf(names, length),
+                    Arrays.copyOf(types, length), Arrays.copyOf(symbols, length), Arrays.copyOf(symbolIds, length),
+                    Arrays.copyOf(quantities, length), Arrays.copyOf(costs, length), Arrays.copyOf(bookValues, length));
+        }
+    }
+
+    /**
+     * 组合估值结果：allocation 为该资产占组合市值的百分比，profitRate 为组合收益率（百分比）；
+     * live 为 false 的资产没有实时价格，按录入的市值计入
+     */
+    public record Valuation(Long userId,
+                            long priceVersion,
+                            BigDecimal totalValue,
+                            BigDecimal totalCost,
+                            BigDecimal profit,
+                            BigDecimal profitRate,
+                            List<Position> positions) {
+    }
+
+    public record Position(Long assetId,
+                           String name,
+                           String type,
+                           String symbol,
+                           BigDecimal quantity,
+                           BigDecimal price,
+                           boolean live,
+                           BigDecimal value,
+                           BigDecimal cost,
+                           BigDecimal profit,
+                           BigDecimal allocation) {
+    }
+}
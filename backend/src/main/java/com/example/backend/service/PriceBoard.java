@@ -0,0 +1,183 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Cryptocurrency;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 内存价格看板：只由数据采集/价格更新刷新，读请求直接返回当前快照，不访问数据库
+ *
+ * 每次刷新都会生成一个新的不可变快照并整体替换引用，读线程无需加锁；
+ * 行情有变化时看板版本号加一并发布 PriceBoardUpdatedEvent，供推送等下游组件使用。
+ * 版本号以启动时刻的毫秒数为起点，重启后仍单调递增，客户端可据此做增量拉取。
+ * 被移除Symbol的记录只保留最近 tombstone-retention-versions 个版本，更早的增量请求返回全量
+ */
+@Component
+public class PriceBoard {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final long tombstoneRetention;
+
+    private volatile Snapshot snapshot = Snapshot.empty(System.currentTimeMillis());
+
+    public PriceBoard(ApplicationEventPublisher eventPublisher,
+                      @Value("${price.board.tombstone-retention-versions:10000}") long tombstoneRetention) {
+        this.eventPublisher = eventPublisher;
+        this.tombstoneRetention = Math.max(1, tombstoneRetention);
+    }
+
+    // 获取当前快照
+    public Snapshot current() {
+        return snapshot;
+    }
+
+    // 获取所有报价（按采集顺序）
+    public List<PriceQuote> getAll() {
+        return snapshot.quotes();
+    }
+
+    // 根据Symbol获取报价
+    public Optional<PriceQuote> get(String symbol) {
+        return Optional.ofNullable(snapshot.bySymbol().get(symbol));
+    }
+
+    public boolean isEmpty() {
+        return snapshot.quotes().isEmpty();
+    }
+
+    // 获取当前看板版本
+    public long getVersion() {
+        return snapshot.version();
+    }
+
+    // 获取指定版本之后发生变化的报价
+    public Delta changesSince(long since) {
+        Snapshot current = snapshot;
+        // 客户端版本比服务端还新（例如服务端重启过），或早于已清理的移除记录，只能返回全量
+        if (since > current.version() || since < current.removedFloor()) {
+            return new Delta(current.version(), true, current.quotes(), List.of());
+        }
+        List<PriceQuote> changed = new ArrayList<>();
+        for (PriceQuote quote : current.quotes()) {
+            if (current.versions().get(quote.symbol()) > since) {
+                changed.add(quote);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        current.removed().forEach((symbol, version) -> {
+            if (version > since) {
+                removed.add(symbol);
+            }
+        });
+        return new Delta(current.version(), false, changed, removed);
+    }
+
+    // 用一组完整的数据替换整个看板
+    public void replaceAll(Collection<Cryptocurrency> cryptocurrencies) {
+        apply(cryptocurrencies, true);
+    }
+
+    // 合并部分更新，未出现的Symbol保持不变
+    public void putAll(Collection<Cryptocurrency> cryptocurrencies) {
+        if (!cryptocurrencies.isEmpty()) {
+            apply(cryptocurrencies, false);
+        }
+    }
+
+    private void apply(Collection<Cryptocurrency> cryptocurrencies, boolean replace) {
+        PriceBoardUpdatedEvent event;
+        synchronized (this) {
+            Snapshot current = snapshot;
+            Map<String, PriceQuote> previous = current.bySymbol();
+            long version = current.version() + 1;
+
+            Map<String, PriceQuote> next = replace ? new LinkedHashMap<>() : new LinkedHashMap<>(previous);
+            Map<String, Long> versions = new HashMap<>(current.versions());
+            Map<String, Long> removed = new HashMap<>(current.removed());
+            long removedFloor = current.removedFloor();
+            Set<String> changed = new HashSet<>();
+            for (Cryptocurrency crypto : cryptocurrencies) {
+                PriceQuote quote = PriceQuote.from(crypto);
+                next.put(quote.symbol(), quote);
+                if (!quote.sameMarketData(previous.get(quote.symbol()))) {
+                    changed.add(quote.symbol());
+                    versions.put(quote.symbol(), version);
+                    removed.remove(quote.symbol());
+                }
+            }
+            if (replace) {
+                for (String symbol : previous.keySet()) {
+                    if (!next.containsKey(symbol)) {
+                        changed.add(symbol);
+                        versions.remove(symbol);
+                        removed.put(symbol, version);
+                    }
+                }
+            }
+            // 清理超出保留范围的移除记录，记下清理到的版本
+            for (Iterator<Long> it = removed.values().iterator(); it.hasNext(); ) {
+                long removedAt = it.next();
+                if (removedAt <= version - tombstoneRetention) {
+                    removedFloor = Math.max(removedFloor, removedAt);
+                    it.remove();
+                }
+            }
+
+            if (changed.isEmpty()) {
+                // 行情没有变化时版本号不变，只替换报价中的时间戳等字段
+                snapshot = new Snapshot(current.version(), Collections.unmodifiableList(new ArrayList<>(next.values())),
+                        Collections.unmodifiableMap(next), current.versions(), current.removed(), current.removedFloor());
+                event = null;
+            } else {
+                snapshot = new Snapshot(version, Collections.unmodifiableList(new ArrayList<>(next.values())),
+                        Collections.unmodifiableMap(next), Collections.unmodifiableMap(versions),
+                        Collections.unmodifiableMap(removed), removedFloor);
+                event = new PriceBoardUpdatedEvent(snapshot, Collections.unmodifiableSet(changed));
+            }
+        }
+        if (event != null) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    /**
+     * 看板的一个不可变版本
+     *
+     * versions记录每个Symbol最后一次变化时的看板版本，removed记录被移除Symbol的移除版本；
+     * removedFloor及之前的移除记录已被清理，早于它的增量请求无法得到完整的removed
+     */
+    public record Snapshot(long version,
+                           List<PriceQuote> quotes,
+                           Map<String, PriceQuote> bySymbol,
+                           Map<String, Long> versions,
+                           Map<String, Long> removed,
+                           long removedFloor) {
+
+        static Snapshot empty(long version) {
+            return new Snapshot(version, List.of(), Map.of(), Map.of(), Map.of(), 0);
+        }
+    }
+
+    /**
+     * 增量结果：full为true时quotes是全量数据
+     */
+    public record Delta(long version, boolean full, List<PriceQuote> quotes, List<String> removed) {
+
+        public boolean isEmpty() {
+            return quotes.isEmpty() && removed.isEmpty();
+        }
+    }
+}
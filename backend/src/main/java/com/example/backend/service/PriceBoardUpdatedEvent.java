@@ -0,0 +1,9 @@
+package com.example.backend.service;
+
+import java.util.Set;
+
+/**
+ * 价格看板刷新事件，只携带行情确实发生变化（或被移除）的Symbol
+ */
+public record PriceBoardUpdatedEvent(PriceBoard.Snapshot snapshot, Set<String> changedSymbols) {
+}
@@ -0,0 +1,240 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.PriceCandle;
+import com.example.backend.entity.PriceTick;
+import com.example.backend.repository.PriceCandleRepository;
+import com.example.backend.repository.PriceTickBatchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 价格历史：记录每次采集到的价格tick，并预先汇总成1分钟/1小时/1天K线
+ *
+ * tick先进入内存缓冲，由定时任务批量写入；查询时根据时间范围选择合适的K线粒度，
+ * 点数仍超过上限时再合并相邻K线，保证图表只需要几百个点。
+ * 原始tick和1分钟K线只保留一段时间，更早的范围由1小时/1天K线覆盖
+ *
+ * 一批tick和它汇总出的K线在同一个事务中写入，写入失败时整批放回缓冲头部，下次定时任务重试。
+ * 缓冲有容量上限，满了之后新tick（以及放不回去的旧tick）被丢弃并计数
+ */
+@Service
+public class PriceHistoryService {
+
+    // 支持的K线粒度，按从细到粗排列
+    private static final Map<String, ChronoUnit> RESOLUTIONS = new LinkedHashMap<>();
+
+    static {
+        RESOLUTIONS.put("1m", ChronoUnit.MINUTES);
+        RESOLUTIONS.put("1h", ChronoUnit.HOURS);
+        RESOLUTIONS.put("1d", ChronoUnit.DAYS);
+    }
+
+    private final PriceTickBatchRepository priceTickBatchRepository;
+    private final PriceCandleRepository priceCandleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushBatchSize;
+    private final int tickRetentionDays;
+    private final int minuteCandleRetentionDays;
+
+    private final LinkedBlockingDeque<PriceTick> buffer;
+
+    private final AtomicLong flushedTicks = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong droppedTicks = new AtomicLong();
+
+    public PriceHistoryService(PriceTickBatchRepository priceTickBatchRepository,
+                               PriceCandleRepository priceCandleRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${price.history.flush-batch-size:5000}") int flushBatchSize,
+                               @Value("${price.history.tick-retention-days:7}") int tickRetentionDays,
+                               @Value("${price.history.minute-candle-retention-days:30}") int minuteCandleRetentionDays,
+                               @Value("${price.history.buffer-capacity:100000}") int bufferCapacity) {
+        this.priceTickBatchRepository = priceTickBatchRepository;
+        this.priceCandleRepository = priceCandleRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.flushBatchSize = flushBatchSize;
+        this.tickRetentionDays = tickRetentionDays;
+        this.minuteCandleRetentionDays = minuteCandleRetentionDays;
+        this.buffer = new LinkedBlockingDeque<>(bufferCapacity);
+    }
+
+    // 价格看板有变化时记录变化的Symbol的最新价格
+    @EventListener
+    public void onPriceBoardUpdated(PriceBoardUpdatedEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        for (String symbol : event.changedSymbols()) {
+            PriceQuote quote = event.snapshot().bySymbol().get(symbol);
+            if (quote == null || quote.price() == null) {
+                continue;
+            }
+            PriceTick tick = new PriceTick();
+            tick.setSymbol(symbol);
+            tick.setPrice(quote.price());
+            tick.setVolume24h(quote.volume24h());
+            tick.setTickTime(now);
+            if (!buffer.offerLast(tick)) {
+                droppedTicks.incrementAndGet();
+            }
+        }
+    }
+
+    // 定时把缓冲的tick批量写入，并合并到各粒度K线
+    @Scheduled(fixedDelayString = "${price.history.flush-interval-ms:1000}")
+    public void flush() {
+        while (!buffer.isEmpty()) {
+            List<PriceTick> batch = new ArrayList<>();
+            PriceTick tick;
+            while (batch.size() < flushBatchSize && (tick = buffer.poll()) != null) {
+                batch.add(tick);
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    priceTickBatchRepository.insertTicks(batch);
+                    priceTickBatchRepository.upsertCandles(rollup(batch));
+                });
+                flushedTicks.addAndGet(batch.size());
+            } catch (Exception e) {
+                failedFlushes.incrementAndGet();
+                int requeued = requeue(batch);
+                System.err.println("价格tick写入失败，" + requeued + " 条放回缓冲等待重试: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("buffered", buffer.size());
+        metrics.put("flushedTicks", flushedTicks.get());
+        metrics.put("failedFlushes", failedFlushes.get());
+        metrics.put("droppedTicks", droppedTicks.get());
+        return metrics;
+    }
+
+    // 把写入失败的一批tick按原顺序放回缓冲头部，放不下的部分计为丢弃；返回放回的条数
+    private int requeue(List<PriceTick> batch) {
+        int requeued = 0;
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (buffer.offerFirst(batch.get(i))) {
+                requeued++;
+            } else {
+                droppedTicks.addAndGet(i + 1);
+                break;
+            }
+        }
+        return requeued;
+    }
+
+    // 每天清理超过保留期的原始tick和1分钟K线，1小时/1天K线不受影响
+    @Scheduled(cron = "${price.history.purge-cron:0 30 3 * * ?}")
+    public void purgeExpiredHistory() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime ticksBefore = now.minusDays(tickRetentionDays);
+        int ticks = 0;
+        int deleted;
+        do {
+            deleted = priceTickBatchRepository.deleteTicksBefore(ticksBefore, 10000);
+            ticks += deleted;
+        } while (deleted > 0);
+
+        LocalDateTime candlesBefore = now.minusDays(minuteCandleRetentionDays);
+        int candles = 0;
+        do {
+            deleted = priceTickBatchRepository.deleteCandlesBefore("1m", candlesBefore, 10000);
+            candles += deleted;
+        } while (deleted > 0);
+        System.out.println("已清理 " + ticks + " 条过期价格tick，" + candles + " 条过期1分钟K线");
+    }
+
+    // 查询K线，自动选择粒度并把点数控制在maxPoints以内
+    public List<Map<String, Object>> getCandles(String symbol, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        String resolution = chooseResolution(from, to, maxPoints);
+        ChronoUnit unit = RESOLUTIONS.get(resolution);
+        List<PriceCandle> candles = priceCandleRepository.findBySymbolAndResolutionAndBucketStartBetweenOrderByBucketStart(
+                symbol, resolution, from.truncatedTo(unit), to);
+
+        // 仍超过上限时合并相邻K线
+        int groupSize = Math.max(1, (candles.size() + maxPoints - 1) / maxPoints);
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (int i = 0; i < candles.size(); i += groupSize) {
+            List<PriceCandle> group = candles.subList(i, Math.min(i + groupSize, candles.size()));
+            PriceCandle first = group.get(0);
+            BigDecimal high = first.getHigh();
+            BigDecimal low = first.getLow();
+            int ticks = 0;
+            for (PriceCandle candle : group) {
+                high = high.max(candle.getHigh());
+                low = low.min(candle.getLow());
+                ticks += candle.getTickCount();
+            }
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("time", first.getBucketStart());
+            point.put("resolution", resolution);
+            point.put("open", first.getOpen());
+            point.put("high", high);
+            point.put("low", low);
+            point.put("close", group.get(group.size() - 1).getClose());
+            point.put("ticks", ticks);
+            result.add(point);
+        }
+        return result;
+    }
+
+    // 选择能让点数不超过maxPoints的最细粒度；起点早于1分钟K线保留期时从1小时开始选
+    private String chooseResolution(LocalDateTime from, LocalDateTime to, int maxPoints) {
+        Duration range = Duration.between(from, to);
+        boolean minutesPurged = from.isBefore(LocalDateTime.now().minusDays(minuteCandleRetentionDays));
+        for (Map.Entry<String, ChronoUnit> entry : RESOLUTIONS.entrySet()) {
+            if (minutesPurged && "1m".equals(entry.getKey())) {
+                continue;
+            }
+            if (range.dividedBy(entry.getValue().getDuration()) <= maxPoints) {
+                return entry.getKey();
+            }
+        }
+        return "1d";
+    }
+
+    // 在内存中把一批tick汇总成各粒度K线，再一次性写入
+    private List<PriceCandle> rollup(List<PriceTick> ticks) {
+        Map<String, PriceCandle> candles = new LinkedHashMap<>();
+        for (PriceTick tick : ticks) {
+            for (Map.Entry<String, ChronoUnit> entry : RESOLUTIONS.entrySet()) {
+                LocalDateTime bucketStart = tick.getTickTime().truncatedTo(entry.getValue());
+                String key = tick.getSymbol() + "|" + entry.getKey() + "|" + bucketStart;
+                PriceCandle candle = candles.get(key);
+                if (candle == null) {
+                    candle = new PriceCandle();
+                    candle.setSymbol(tick.getSymbol());
+                    candle.setResolution(entry.getKey());
+                    candle.setBucketStart(bucketStart);
+                    candle.setOpen(tick.getPrice());
+                    candle.setHigh(tick.getPrice());
+                    candle.setLow(tick.getPrice());
+                    candle.setTickCount(0);
+                    candles.put(key, candle);
+                }
+                candle.setHigh(candle.getHigh().max(tick.getPrice()));
+                candle.setLow(candle.getLow().min(tick.getPrice()));
+                candle.setClose(tick.getPrice());
+                candle.setTickCount(candle.getTickCount() + 1);
+            }
+        }
+        return new ArrayList<>(candles.values());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Cryptocurrency;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 价格看板中的只读报价，字段名与 Cryptocurrency 实体的 JSON 输出保持一致，前端无需改动
+ */
+public record PriceQuote(Long id,
+                         String name,
+                         String symbol,
+                         BigDecimal price,
+                         String priceCurrency,
+                         BigDecimal marketCap,
+                         BigDecimal change24h,
+                         BigDecimal volume24h,
+                         LocalDateTime createdAt,
+                         LocalDateTime updatedAt) {
+
+    // 从实体复制一份不可变报价，之后实体再被修改也不会影响看板
+    public static PriceQuote from(Cryptocurrency crypto) {
+        return new PriceQuote(crypto.getId(), crypto.getName(), crypto.getSymbol(), crypto.getPrice(),
+                crypto.getPriceCurrency(), crypto.getMarketCap(), crypto.getChange24h(), crypto.getVolume24h(),
+                crypto.getCreatedAt(), crypto.getUpdatedAt());
+    }
+
+    // 判断行情字段是否相同（BigDecimal按数值比较，忽略时间戳）
+    public boolean sameMarketData(PriceQuote other) {
+        return other != null
+                && Objects.equals(name, other.name)
+                && Objects.equals(priceCurrency, other.priceCurrency)
+                && sameNumber(price, other.price)
+                && sameNumber(marketCap, other.marketCap)
+                && sameNumber(change24h, other.change24h)
+                && sameNumber(volume24h, other.volume24h);
+    }
+
+    private static boolean sameNumber(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.backend.service;
+
+import com.example.backend.common.RankedIndex;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 价格排行服务：按市值、24h涨跌幅、24h成交量、价格维护增量更新的名次索引
+ *
+ * 监听价格看板变化，只更新发生变化的Symbol；取前N名、后N名（跌幅榜）和分页都不需要全量排序。
+ * 某个字段为空的报价不参与该字段的排名
+ */
+@Service
+public class PriceRankingService {
+
+    public static final String MARKET_CAP = "marketCap";
+
+    private static final Map<String, Function<PriceQuote, BigDecimal>> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put(MARKET_CAP, PriceQuote::marketCap);
+        FIELDS.put("change24h", PriceQuote::change24h);
+        FIELDS.put("volume24h", PriceQuote::volume24h);
+        FIELDS.put("price", PriceQuote::price);
+    }
+
+    private final PriceBoard priceBoard;
+    private final Map<String, RankedIndex<String>> indexes = new LinkedHashMap<>();
+
+    public PriceRankingService(PriceBoard priceBoard) {
+        this.priceBoard = priceBoard;
+        for (String field : FIELDS.keySet()) {
+            indexes.put(field, new RankedIndex<>());
+        }
+    }
+
+    // 看板变化时更新名次；以看板最新快照为准，事件乱序到达也不会写入旧值
+    @EventListener
+    public void onPriceBoardUpdated(PriceBoardUpdatedEvent event) {
+        synchronized (this) {
+            // 在锁内读取快照，后进入的监听器一定读到不旧于先进入者的快照
+            Map<String, PriceQuote> latest = priceBoard.current().bySymbol();
+            for (String symbol : event.changedSymbols()) {
+                PriceQuote quote = latest.get(symbol);
+                for (Map.Entry<String, Function<PriceQuote, BigDecimal>> field : FIELDS.entrySet()) {
+                    indexes.get(field.getKey()).put(symbol, quote == null ? null : field.getValue().apply(quote));
+                }
+            }
+        }
+    }
+
+    // 按字段取一页排行，descending为true时从大到小（涨幅榜/市值榜），false时从小到大（跌幅榜）
+    public Page getRanking(String by, boolean descending, int offset, int limit) {
+        RankedIndex<String> index = indexes.get(by);
+        if (index == null) {
+            throw new RuntimeException("不支持的排序字段: " + by + "，可选: " + FIELDS.keySet());
+        }
+        List<String> symbols;
+        int total;
+        synchronized (this) {
+            symbols = index.range(offset, limit, descending);
+            total = index.size();
+        }
+        Map<String, PriceQuote> bySymbol = priceBoard.current().bySymbol();
+        List<PriceQuote> quotes = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            PriceQuote quote = bySymbol.get(symbol);
+            if (quote != null) {
+                quotes.add(quote);
+            }
+        }
+        return new Page(by, descending, total, offset, quotes);
+    }
+
+    // 按市值取前limit名，没有市值的报价按看板顺序补在后面
+    public List<PriceQuote> getTopByMarketCap(int limit) {
+        List<PriceQuote> quotes = new ArrayList<>(getRanking(MARKET_CAP, true, 0, limit).quotes());
+        if (quotes.size() < limit) {
+            for (PriceQuote quote : priceBoard.getAll()) {
+                if (quotes.size() >= limit) {
+                    break;
+                }
+                if (quote.marketCap() == null) {
+                    quotes.add(quote);
+                }
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * 一页排行结果，quotes中第i条的名次为 offset + i + 1
+     */
+    public record Page(String by, boolean descending, int total, int offset, List<PriceQuote> quotes) {
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 价格推送服务（SSE）
+ *
+ * 连接基于Servlet异步请求，空闲连接不占用线程；看板变化只记录脏Symbol，
+ * 由定时任务每个tick合并成一条消息推送，同一tick内多次变化只推送最新值。
+ * 每个连接分配随机令牌（UUID）作为subscriberId，修改订阅时必须提供该令牌，无法猜出其他连接的标识
+ *
+ * 每条消息都带看板版本号。连接先收到完整快照再加入推送列表，之后补发快照版本之后的变化；
+ * 同一连接上版本号比已发送消息更旧的消息不再发送，避免旧数据覆盖客户端已有的新报价
+ *
+ * 定时任务只把消息放入每个连接的待发送队列，由独立的固定大小线程池逐个连接发送，
+ * 慢连接不会占用共用的定时任务线程；待发送消息超过 max-pending 条的连接视为跟不上，直接断开
+ */
+@Service
+public class PriceStreamService {
+
+    private final PriceBoard priceBoard;
+    private final JsonMapper jsonMapper;
+    private final long emitterTimeoutMs;
+    private final int maxPending;
+    private final int senderThreads;
+    private final ExecutorService sender;
+
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final Set<String> dirtySymbols = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong slowDisconnects = new AtomicLong();
+
+    public PriceStreamService(PriceBoard priceBoard,
+                              JsonMapper jsonMapper,
+                              @Value("${price.stream.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                              @Value("${price.stream.max-pending:16}") int maxPending,
+                              @Value("${price.stream.sender-threads:4}") int senderThreads) {
+        this.priceBoard = priceBoard;
+        this.jsonMapper = jsonMapper;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.maxPending = Math.max(1, maxPending);
+        this.senderThreads = Math.max(1, senderThreads);
+        AtomicInteger threadIds = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(this.senderThreads, r -> {
+            Thread thread = new Thread(r, "price-stream-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    // 建立推送连接，symbols为空表示订阅全部
+    public SseEmitter subscribe(Collection<String> symbols) {
+        String id = UUID.randomUUID().toString();
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(id, emitter, normalize(symbols));
+        emitter.onCompletion(() -> subscribers.remove(id));
+        emitter.onTimeout(() -> subscribers.remove(id));
+        emitter.onError(e -> subscribers.remove(id));
+
+        // 先推送一次订阅范围内的完整快照，发送成功后才加入推送列表
+        PriceBoard.Snapshot snapshot = priceBoard.current();
+        if (!sendSnapshot(subscriber, snapshot)) {
+            return emitter;
+        }
+        subscribers.put(id, subscriber);
+
+        // 补发快照之后、加入推送列表之前可能已被定时推送消费掉的变化
+        PriceBoard.Delta delta = priceBoard.changesSince(snapshot.version());
+        if (!delta.isEmpty()) {
+            List<PriceQuote> quotes = filter(delta.quotes(), subscriber.symbols);
+            List<String> removed = filterSymbols(delta.removed(), subscriber.symbols);
+            if (!quotes.isEmpty() || !removed.isEmpty()) {
+                send(subscriber, "prices", toJson(pricesMessage(delta.version(), quotes, removed)), delta.version());
+            }
+        }
+        return emitter;
+    }
+
+    // 修改已有连接的订阅范围
+    public boolean updateSubscription(String subscriberId, Collection<String> symbols) {
+        Subscriber subscriber = subscribers.get(subscriberId);
+        if (subscriber == null) {
+            return false;
+        }
+        subscriber.symbols = normalize(symbols);
+        sendSnapshot(subscriber, priceBoard.current());
+        return true;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public Map<String, Object> getMetrics() {
+        int pending = 0;
+        for (Subscriber subscriber : subscribers.values()) {
+            pending += subscriber.pendingCount.get();
+        }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("subscribers", subscribers.size());
+        metrics.put("pendingFrames", pending);
+        metrics.put("maxPending", maxPending);
+        metrics.put("senderThreads", senderThreads);
+        metrics.put("framesSent", framesSent.get());
+        metrics.put("slowDisconnects", slowDisconnects.get());
+        return metrics;
+    }
+
+    @EventListener
+    public void onPriceBoardUpdated(PriceBoardUpdatedEvent event) {
+        dirtySymbols.addAll(event.changedSymbols());
+    }
+
+    // 每个tick把期间所有变化合并成消息放入各连接的发送队列
+    @Scheduled(fixedDelayString = "${price.stream.tick-ms:1000}")
+    public void flush() {
+        if (dirtySymbols.isEmpty() || subscribers.isEmpty()) {
+            return;
+        }
+        List<String> changed = new ArrayList<>();
+        for (Iterator<String> it = dirtySymbols.iterator(); it.hasNext(); ) {
+            changed.add(it.next());
+            it.remove();
+        }
+        PriceBoard.Snapshot snapshot = priceBoard.current();
+        Map<String, PriceQuote> bySymbol = snapshot.bySymbol();
+        List<PriceQuote> changedQuotes = new ArrayList<>();
+        List<String> removedSymbols = new ArrayList<>();
+        for (String symbol : changed) {
+            PriceQuote quote = bySymbol.get(symbol);
+            if (quote != null) {
+                changedQuotes.add(quote);
+            } else if (snapshot.removed().containsKey(symbol)) {
+                // 已从看板移除的Symbol与 ?since= 增量接口一样放在removed中
+                removedSymbols.add(symbol);
+            }
+        }
+        if (changedQuotes.isEmpty() && removedSymbols.isEmpty()) {
+            return;
+        }
+
+        // 订阅范围相同的连接共用同一份序列化结果
+        Map<Set<String>, String> payloads = new HashMap<>();
+        for (Subscriber subscriber : subscribers.values()) {
+            Set<String> symbols = subscriber.symbols;
+            String payload = payloads.computeIfAbsent(symbols, s -> {
+                List<PriceQuote> filtered = filter(changedQuotes, s);
+                List<String> removed = filterSymbols(removedSymbols, s);
+                return filtered.isEmpty() && removed.isEmpty() ? ""
+                        : toJson(pricesMessage(snapshot.version(), filtered, removed));
+            });
+            if (!payload.isEmpty()) {
+                enqueue(subscriber, new Frame("prices", payload, snapshot.version()));
+            }
+        }
+    }
+
+    // 定期发送心跳注释，防止代理或浏览器断开空闲连接
+    @Scheduled(fixedRateString = "${price.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers.values()) {
+            enqueue(subscriber, Frame.PING);
+        }
+    }
+
+    // 放入连接的发送队列；积压超过上限的连接断开，客户端重连后从完整快照重新开始
+    private void enqueue(Subscriber subscriber, Frame frame) {
+        if (subscriber.pendingCount.incrementAndGet() > maxPending) {
+            if (subscribers.remove(subscriber.id, subscriber)) {
+                slowDisconnects.incrementAndGet();
+                System.err.println("价格推送连接积压超过 " + maxPending + " 条，断开: " + subscriber.id);
+                subscriber.emitter.completeWithError(new IOException("推送连接积压过多"));
+            }
+            return;
+        }
+        subscriber.pending.add(frame);
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    // 在发送线程上按顺序发送一个连接的待发送消息；同一连接同时只有一个发送任务
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            Frame frame;
+            while ((frame = subscriber.pending.poll()) != null) {
+                subscriber.pendingCount.decrementAndGet();
+                boolean ok = frame == Frame.PING ? ping(subscriber) : send(subscriber, frame.event(), frame.json(), frame.version());
+                if (!ok) {
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+            // 释放标记后又有新消息入队、且没有其他任务接手时继续发送
+            if (subscriber.pending.isEmpty() || !subscriber.draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private boolean ping(Subscriber subscriber) {
+        synchronized (subscriber) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                remove(subscriber);
+                return false;
+            }
+        }
+    }
+
+    // 推送订阅范围内的完整快照，返回是否发送成功
+    private boolean sendSnapshot(Subscriber subscriber, PriceBoard.Snapshot snapshot) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("subscriberId", subscriber.id);
+        message.put("version", snapshot.version());
+        message.put("data", filter(snapshot.quotes(), subscriber.symbols));
+        return send(subscriber, "snapshot", toJson(message), snapshot.version());
+    }
+
+    private static Map<String, Object> pricesMessage(long version, List<PriceQuote> quotes, List<String> removed) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("version", version);
+        message.put("data", quotes);
+        message.put("removed", removed);
+        return message;
+    }
+
+    // 发送一条带版本号的消息；比该连接已发送的版本更旧时跳过（其内容已被更新的消息覆盖），返回连接是否仍然可用
+    private boolean send(Subscriber subscriber, String eventName, String json, long version) {
+        synchronized (subscriber) {
+            if (version < subscriber.sentVersion) {
+                return true;
+            }
+            try {
+                subscriber.emitter.send(SseEmitter.event().name(eventName).data(json));
+                subscriber.sentVersion = version;
+                framesSent.incrementAndGet();
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                remove(subscriber);
+                return false;
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.remove(subscriber.id);
+        subscriber.emitter.completeWithError(new IOException("推送连接已断开"));
+    }
+
+    private String toJson(Object value) {
+        return jsonMapper.writeValueAsString(value);
+    }
+
+    private static List<PriceQuote> filter(List<PriceQuote> quotes, Set<String> symbols) {
+        if (symbols.isEmpty()) {
+            return quotes;
+        }
+        List<PriceQuote> filtered = new ArrayList<>();
+        for (PriceQuote quote : quotes) {
+            if (symbols.contains(quote.symbol())) {
+                filtered.add(quote);
+            }
+        }
+        return filtered;
+    }
+
+    private static List<String> filterSymbols(List<String> symbols, Set<String> subscribed) {
+        if (subscribed.isEmpty()) {
+            return symbols;
+        }
+        List<String> filtered = new ArrayList<>();
+        for (String symbol : symbols) {
+            if (subscribed.contains(symbol)) {
+                filtered.add(symbol);
+            }
+        }
+        return filtered;
+    }
+
+    private static Set<String> normalize(Collection<String> symbols) {
+        Set<String> normalized = new TreeSet<>();
+        if (symbols != null) {
+            for (String symbol : symbols) {
+                if (symbol != null && !symbol.isBlank()) {
+                    normalized.add(symbol.trim().toUpperCase());
+                }
+            }
+        }
+        return Set.copyOf(normalized);
+    }
+
+    private static class Subscriber {
+        private final String id;
+        private final SseEmitter emitter;
+        private volatile Set<String> symbols;
+        // 已发送消息的最大看板版本，由 synchronized (subscriber) 保护
+        private long sentVersion = Long.MIN_VALUE;
+        // 待发送消息；pendingCount 在入队前加一，用于判断积压
+        private final Queue<Frame> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        // 是否已有发送任务在处理该连接
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(String id, SseEmitter emitter, Set<String> symbols) {
+            this.id = id;
+            this.emitter = emitter;
+            this.symbols = symbols;
+        }
+    }
+
+    /**
+     * 一条待发送的消息，PING 为心跳注释，不参与版本比较
+     */
+    private record Frame(String event, String json, long version) {
+
+        static final Frame PING = new Frame(null, null, Long.MIN_VALUE);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.backend.service.impl;
 
+import com.example.backend.client.DifyWorkflowStream;
+import com.example.backend.client.WorkflowHttpClient;
 import com.example.backend.entity.Message;
 import com.example.backend.service.MessageCollectionService;
 import com.example.backend.service.MessageService;
@@ -7,13 +9,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class MessageCollectionServiceImpl implements MessageCollectionService {
@@ -23,17 +24,24 @@ public class MessageCollectionServiceImpl implements MessageCollectionService {
 
     private final String difyApiUrl;
     private final String difyApiKey;
-    private final RestTemplate restTemplate;
+    private final WorkflowHttpClient workflowHttpClient;
     private final ObjectMapper objectMapper;
+    private final boolean streaming;
+    private final int batchSize;
 
     private static final int MAX_RETRY_COUNT = 3;
 
     public MessageCollectionServiceImpl(@Value("${dify.api.url}") String difyApiUrl,
-                                       @Value("${dify.api.key}") String difyApiKey) {
+                                       @Value("${dify.api.key}") String difyApiKey,
+                                       @Value("${dify.response-mode:streaming}") String responseMode,
+                                       @Value("${message.collect.batch-size:20}") int batchSize,
+                                       WorkflowHttpClient workflowHttpClient) {
         this.difyApiUrl = difyApiUrl;
         this.difyApiKey = difyApiKey;
-        this.restTemplate = new RestTemplate();
+        this.workflowHttpClient = workflowHttpClient;
         this.objectMapper = new ObjectMapper();
+        this.streaming = "streaming".equalsIgnoreCase(responseMode);
+        this.batchSize = batchSize;
     }
 
     @Override
@@ -42,19 +50,28 @@ public class MessageCollectionServiceImpl implements MessageCollectionService {
         boolean success = false;
 
         while (retryCount < MAX_RETRY_COUNT && !success) {
+            int[] savedCount = {0};
             try {
+                if (streaming) {
+                    // 流式模式：消息边解析边分批保存
+                    streamMessagesFromDify(batch -> {
+                        messageService.addMessages(batch);
+                        savedCount[0] += batch.size();
+                    });
+                    if (savedCount[0] == 0) {
+                        messageService.addMessage(emptyDayMessage());
+                    }
+                    System.out.println("流式采集并保存消息 " + savedCount[0] + " 条");
+                    success = true;
+                    continue;
+                }
+
                 // 调用Dify智能体接口获取消息
                 List<Message> messages = fetchMessagesFromDify();
                 
                 if (messages.isEmpty()) {
                     // 无新消息时，生成"今日无新增消息"记录
-                    Message emptyMessage = new Message();
-                    emptyMessage.setTitle("今日无新增消息");
-                    emptyMessage.setContent("Dify智能体未采集到新的加密货币相关消息");
-                    emptyMessage.setCryptoType("ALL");
-                    emptyMessage.setMarketImpact("neutral");
-                    emptyMessage.setPublishTime(LocalDateTime.now());
-                    messageService.addMessage(emptyMessage);
+                    messageService.addMessage(emptyDayMessage());
                 } else {
                     // 保存采集到的消息
                     for (Message message : messages) {
@@ -63,6 +80,11 @@ public class MessageCollectionServiceImpl implements MessageCollectionService {
                 }
                 success = true;
             } catch (Exception e) {
+                if (savedCount[0] > 0) {
+                    // 已有部分消息入库，重试会产生重复消息，保留已保存的部分并结束本次采集
+                    System.err.println("消息采集中途失败，已保存 " + savedCount[0] + " 条，不再重试: " + e.getMessage());
+                    return;
+                }
                 retryCount++;
                 System.err.println("消息采集失败，正在尝试第" + retryCount + "次重试: " + e.getMessage());
                 if (retryCount >= MAX_RETRY_COUNT) {
@@ -78,6 +100,36 @@ public class MessageCollectionServiceImpl implements MessageCollectionService {
         }
     }
 
+    /**
+     * 以流式模式从Dify API获取消息，每解析出batchSize条就交给batchConsumer保存
+     */
+    private void streamMessagesFromDify(Consumer<List<Message>> batchConsumer) {
+        List<Message> batch = new ArrayList<>();
+        DifyWorkflowStream stream = new DifyWorkflowStream(objectMapper, node -> {
+            batch.add(toMessage(node));
+            if (batch.size() >= batchSize) {
+                batchConsumer.accept(new ArrayList<>(batch));
+                batch.clear();
+            }
+        });
+
+        String requestBody = "{\"inputs\": {}, \"response_mode\": \"streaming\", \"user\": \"message-collector\"}";
+        try {
+            workflowHttpClient.postForLines("dify-message", difyApiUrl, difyApiKey, requestBody, stream);
+        } finally {
+            // 中途失败时也保存已完整解析的消息
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(new ArrayList<>(batch));
+                batch.clear();
+            }
+        }
+
+        stream.verifyComplete();
+        if (stream.hasText() && !stream.hasArray()) {
+            throw new RuntimeException("Dify API返回的数据不是JSON数组");
+        }
+    }
+
     /**
      * 从Dify API获取消息
      * @return 结构化消息列表
@@ -85,18 +137,11 @@ public class MessageCollectionServiceImpl implements MessageCollectionService {
     private List<Message> fetchMessagesFromDify() throws Exception {
         List<Message> messages = new ArrayList<>();
 
-        // 设置请求头
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(difyApiKey);
-
         // 设置请求体
         String requestBody = "{\"inputs\": {}, \"response_mode\": \"blocking\", \"user\": \"message-collector\"}";
-        HttpEntity<String> requestEntity = new HttpEntity<>(requestBody, headers);
 
-        // 发送POST请求
-        ResponseEntity<String> responseEntity = restTemplate.postForEntity(difyApiUrl, requestEntity, String.class);
-        String response = responseEntity.getBody();
+        // 通过共享客户端发送POST请求（带超时与并发限制）
+        String response = workflowHttpClient.postJson("dify-message", difyApiUrl, difyApiKey, requestBody);
 
         if (response == null) {
             throw new RuntimeException("Dify API响应为空");
@@ -122,15 +167,30 @@ public class MessageCollectionServiceImpl implements MessageCollectionService {
 
         // 转换为实体类列表
         for (JsonNode node : dataNode) {
-            Message message = new Message();
-            message.setTitle(node.path("title").asText());
-            message.setContent(node.path("content").asText());
-            message.setCryptoType(node.path("crypto_type").asText());
-            message.setMarketImpact(node.path("market_impact").asText());
-            message.setPublishTime(LocalDateTime.now());
-            messages.add(message);
+            messages.add(toMessage(node));
         }
 
         return messages;
     }
+
+    private Message toMessage(JsonNode node) {
+        Message message = new Message();
+        message.setTitle(node.path("title").asText());
+        message.setContent(node.path("content").asText());
+        message.setCryptoType(node.path("crypto_type").asText());
+        message.setMarketImpact(node.path("market_impact").asText());
+        message.setPublishTime(LocalDateTime.now());
+        return message;
+    }
+
+    // 无新消息时写入的"今日无新增消息"记录
+    private Message emptyDayMessage() {
+        Message emptyMessage = new Message();
+        emptyMessage.setTitle("今日无新增消息");
+        emptyMessage.setContent("Dify智能体未采集到新的加密货币相关消息");
+        emptyMessage.setCryptoType("ALL");
+        emptyMessage.setMarketImpact("neutral");
+        emptyMessage.setPublishTime(LocalDateTime.now());
+        return emptyMessage;
+    }
 }
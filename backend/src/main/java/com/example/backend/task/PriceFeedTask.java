@@ -0,0 +1,30 @@
+package com.example.backend.task;
+
+import com.example.backend.service.CryptocurrencyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PriceFeedTask {
+
+    @Autowired
+    private CryptocurrencyService cryptocurrencyService;
+
+    @Value("${price-feed.schedule-enabled:false}")
+    private boolean scheduleEnabled;
+
+    // 按固定间隔从当前数据源拉取行情（默认关闭，Dify仍由 /api/crypto/prices/fetch 手动触发）
+    @Scheduled(fixedDelayString = "${price-feed.poll-interval-ms:1000}")
+    public void pollActiveFeed() {
+        if (!scheduleEnabled) {
+            return;
+        }
+        try {
+            cryptocurrencyService.ingestFromActiveFeed();
+        } catch (Exception e) {
+            System.err.println("定时拉取行情失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.backend.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long LONG_OPEN_MS = 3_600_000L;
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, LONG_OPEN_MS);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2L, breaker.toMap().get("rejected"));
+        assertEquals(1L, breaker.toMap().get("openCount"));
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, LONG_OPEN_MS);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(2, breaker.toMap().get("consecutiveFailures"));
+    }
+
+    @Test
+    void halfOpenAllowsSingleTrial() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 0);
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 冷却时间为0：下一次调用即进入半开，只放行一次试探
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1L, breaker.toMap().get("rejected"));
+    }
+
+    @Test
+    void successfulTrialCloses() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 0);
+        breaker.recordFailure();
+        assertTrue(breaker.tryAcquire());
+
+        breaker.recordSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedTrialReopens() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 5, 0);
+        for (int i = 0; i < 5; i++) {
+            breaker.recordFailure();
+        }
+        assertTrue(breaker.tryAcquire());
+
+        // 半开状态下一次失败即重新打开，不需要再次达到阈值
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2L, breaker.toMap().get("openCount"));
+    }
+
+    @Test
+    void stillOpenBeforeCooldownElapses() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, LONG_OPEN_MS);
+        breaker.recordFailure();
+
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        long remaining = (Long) breaker.toMap().get("openRemainingMs");
+        assertTrue(remaining > 0 && remaining <= LONG_OPEN_MS);
+    }
+
+    @Test
+    void failuresWhileOpenDoNotCountAsNewOpen() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, LONG_OPEN_MS);
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        assertEquals(1L, breaker.toMap().get("openCount"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.backend.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重估内核基准：同一批资产分别用 BigDecimal 和定点数计算市值、收益率和市值汇总
+ *
+ * 运行方式（在backend目录下，先执行 mvn test-compile 和 mvn dependency:build-classpath -Dmdep.outputFile=cp.txt）：
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main FixedPointBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixedPointBenchmark {
+
+    private static final BigDecimal HUNDRED = new BigDecimal(100);
+
+    @Param({"1000", "10000"})
+    private int assets;
+
+    private BigDecimal[] quantities;
+    private BigDecimal[] costPrices;
+    private BigDecimal[] prices;
+
+    private long[] fixedQuantities;
+    private long[] fixedCostPrices;
+    private long[] fixedPrices;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        quantities = new BigDecimal[assets];
+        costPrices = new BigDecimal[assets];
+        prices = new BigDecimal[assets];
+        fixedQuantities = new long[assets];
+        fixedCostPrices = new long[assets];
+        fixedPrices = new long[assets];
+        for (int i = 0; i < assets; i++) {
+            quantities[i] = BigDecimal.valueOf(1 + random.nextInt(100_000_000), 6);
+            costPrices[i] = BigDecimal.valueOf(1 + random.nextInt(1_000_000_000), 4);
+            prices[i] = BigDecimal.valueOf(1 + random.nextInt(1_000_000_000), 4);
+            fixedQuantities[i] = FixedPoint.ofExact(quantities[i]);
+            fixedCostPrices[i] = FixedPoint.ofExact(costPrices[i]);
+            fixedPrices[i] = FixedPoint.ofExact(prices[i]);
+        }
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < assets; i++) {
+            BigDecimal value = quantities[i].multiply(prices[i]).setScale(6, RoundingMode.HALF_UP);
+            BigDecimal cost = costPrices[i].multiply(quantities[i]);
+            BigDecimal rate = value.subtract(cost).divide(cost, 2, RoundingMode.HALF_UP).multiply(HUNDRED);
+            total = total.add(value);
+            blackhole.consume(rate);
+        }
+        blackhole.consume(total);
+    }
+
+    @Benchmark
+    public void fixedPoint(Blackhole blackhole) {
+        long total = 0;
+        for (int i = 0; i < assets; i++) {
+            long value = FixedPoint.multiply(fixedQuantities[i], fixedPrices[i]);
+            long rate = FixedPoint.profitRatePercent(fixedPrices[i], fixedCostPrices[i]);
+            total += value;
+            blackhole.consume(rate);
+        }
+        blackhole.consume(total);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.backend.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedPointTest {
+
+    private static final BigDecimal HUNDRED = new BigDecimal(100);
+
+    private final Random random = new Random(20240601L);
+
+    @Test
+    void multiplyMatchesBigDecimalRounding() {
+        for (int i = 0; i < 200_000; i++) {
+            long a = randomValue();
+            long b = randomValue();
+            BigDecimal expected = FixedPoint.toBigDecimal(a).multiply(FixedPoint.toBigDecimal(b))
+                    .setScale(FixedPoint.SCALE, RoundingMode.HALF_UP);
+            if (expected.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE, FixedPoint.SCALE)) > 0) {
+                assertThrows(ArithmeticException.class, () -> FixedPoint.multiply(a, b));
+            } else {
+                assertEquals(expected, FixedPoint.toBigDecimal(FixedPoint.multiply(a, b)), a + " * " + b);
+            }
+        }
+    }
+
+    @Test
+    void multiplyRoundsHalfAwayFromZero() {
+        // 0.000001 * 0.5 = 0.0000005 -> 0.000001
+        assertEquals(1, FixedPoint.multiply(1, 500_000));
+        assertEquals(-1, FixedPoint.multiply(-1, 500_000));
+        assertEquals(0, FixedPoint.multiply(1, 499_999));
+    }
+
+    @Test
+    void profitRateMatchesBigDecimalFormula() {
+        for (int i = 0; i < 200_000; i++) {
+            long quantity = nonZero(randomValue() % 10_000_000_000L);
+            long costPrice = Math.abs(nonZero(randomValue() % 100_000_000_000L));
+            long value = randomValue() % 1_000_000_000_000L;
+            BigDecimal q = FixedPoint.toBigDecimal(quantity);
+            BigDecimal c = FixedPoint.toBigDecimal(costPrice);
+            BigDecimal v = FixedPoint.toBigDecimal(value);
+            BigDecimal cost = c.multiply(q);
+            BigDecimal expected = v.subtract(cost).divide(cost, 2, RoundingMode.HALF_UP).multiply(HUNDRED);
+            try {
+                long percent = FixedPoint.profitRatePercent(value, costPrice, quantity);
+                assertEquals(expected, FixedPoint.percentToBigDecimal(percent));
+            } catch (ArithmeticException e) {
+                // 超出long范围时由调用方回退到BigDecimal
+            }
+        }
+    }
+
+    @Test
+    void revaluationProfitRateMatchesQuantityTimesPrice() {
+        for (int i = 0; i < 200_000; i++) {
+            long quantity = nonZero(randomValue() % 10_000_000_000L);
+            long costPrice = Math.abs(nonZero(randomValue() % 100_000_000_000L));
+            long price = Math.abs(randomValue() % 100_000_000_000L);
+            BigDecimal q = FixedPoint.toBigDecimal(quantity);
+            BigDecimal c = FixedPoint.toBigDecimal(costPrice);
+            BigDecimal currentValue = q.multiply(FixedPoint.toBigDecimal(price));
+            BigDecimal cost = c.multiply(q);
+            BigDecimal expected = currentValue.subtract(cost).divide(cost, 2, RoundingMode.HALF_UP).multiply(HUNDRED);
+            assertEquals(expected, FixedPoint.percentToBigDecimal(FixedPoint.profitRatePercent(price, costPrice)));
+        }
+    }
+
+    @Test
+    void ratioMatchesBigDecimalDivide() {
+        for (int i = 0; i < 200_000; i++) {
+            long total = Math.abs(nonZero(randomValue() % 100_000_000_000_000L));
+            long part = Math.floorMod(randomValue(), total + 1);
+            BigDecimal expected = FixedPoint.toBigDecimal(part)
+                    .divide(FixedPoint.toBigDecimal(total), 4, RoundingMode.HALF_UP).multiply(HUNDRED);
+            long percent = Math.multiplyExact(FixedPoint.ratio(part, total, 4), 100);
+            assertEquals(expected, BigDecimal.valueOf(percent, 4));
+        }
+    }
+
+    @Test
+    void ofExactRejectsExtraDecimals() {
+        assertEquals(1_234_567, FixedPoint.ofExact(new BigDecimal("1.234567")));
+        assertEquals(1_234_567, FixedPoint.of(new BigDecimal("1.2345665")));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.ofExact(new BigDecimal("1.2345665")));
+    }
+
+    // 混合不同数量级的随机数，覆盖小额与接近上限的大额
+    private long randomValue() {
+        long magnitude = switch (random.nextInt(4)) {
+            case 0 -> random.nextInt(1_000_000);
+            case 1 -> random.nextLong() % 1_000_000_000_000L;
+            case 2 -> random.nextLong() % 1_000_000_000_000_000L;
+            default -> random.nextLong();
+        };
+        return magnitude == Long.MIN_VALUE ? 0 : magnitude;
+    }
+
+    private static long nonZero(long value) {
+        return value == 0 ? 1 : value;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.backend.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonArrayStreamerTest {
+
+    private static final String ARRAY = "[{\"symbol\":\"BTC\",\"price\":60000.5,\"tags\":[\"a\",\"b\"]},"
+            + "{\"symbol\":\"ETH\",\"nested\":{\"x\":[1,{\"y\":2}]}},\"text with ] and [\",42,null]";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> elements = new ArrayList<>();
+    private final JsonArrayStreamer streamer = new JsonArrayStreamer(objectMapper, elements::add);
+
+    @Test
+    void parsesWholeArrayInOneChunk() throws Exception {
+        streamer.append(ARRAY);
+
+        assertTrue(streamer.isFinished());
+        assertEquals(expectedElements(), elements);
+        assertEquals(5, streamer.getElementCount());
+    }
+
+    @Test
+    void parsesArrayFedOneCharacterAtATime() throws Exception {
+        for (int i = 0; i < ARRAY.length(); i++) {
+            streamer.append(ARRAY.substring(i, i + 1));
+            assertEquals(i == ARRAY.length() - 1, streamer.isFinished());
+        }
+
+        assertEquals(expectedElements(), elements);
+    }
+
+    @Test
+    void emitsEachElementAsSoonAsItIsComplete() {
+        streamer.append("[{\"symbol\":\"BTC\"");
+        assertTrue(elements.isEmpty());
+
+        streamer.append("},{\"symbol\":");
+        assertEquals(1, elements.size());
+        assertEquals("BTC", elements.get(0).get("symbol").asText());
+
+        streamer.append("\"ETH\"}");
+        assertEquals(2, elements.size());
+        assertFalse(streamer.isFinished());
+
+        streamer.append("]");
+        assertTrue(streamer.isFinished());
+    }
+
+    @Test
+    void ignoresTextOutsideTheArray() {
+        streamer.append("```json\n");
+        assertFalse(streamer.isStarted());
+
+        streamer.append("[1, 2]\n```\n[3]");
+
+        assertTrue(streamer.isStarted());
+        assertTrue(streamer.isFinished());
+        assertEquals(List.of(1, 2), elements.stream().map(JsonNode::asInt).toList());
+
+        streamer.append("[4]");
+        assertEquals(2, streamer.getElementCount());
+    }
+
+    @Test
+    void handlesMultiByteCharacters() {
+        streamer.append("[{\"name\":\"比特");
+        streamer.append("币\"}]");
+
+        assertEquals("比特币", elements.get(0).get("name").asText());
+    }
+
+    @Test
+    void emptyArrayFinishesWithoutElements() {
+        streamer.append("[ ]");
+
+        assertTrue(streamer.isFinished());
+        assertTrue(elements.isEmpty());
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        streamer.append("[1,");
+
+        assertThrows(RuntimeException.class, () -> streamer.append(",2]"));
+    }
+
+    private List<JsonNode> expectedElements() throws Exception {
+        List<JsonNode> expected = new ArrayList<>();
+        objectMapper.readTree(ARRAY).forEach(expected::add);
+        return expected;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.backend.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LttbTest {
+
+    private final Random random = new Random(20240601L);
+
+    @Test
+    void keepsAllPointsWhenThresholdNotBelowSize() {
+        double[] x = {0, 1, 2, 3};
+        double[] y = {5, 1, 4, 2};
+
+        assertArrayEquals(new int[]{0, 1, 2, 3}, Lttb.select(x, y, 4));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, Lttb.select(x, y, 10));
+        // threshold小于3无法保留首尾之外的点，同样返回全部
+        assertArrayEquals(new int[]{0, 1, 2, 3}, Lttb.select(x, y, 2));
+        assertEquals(0, Lttb.select(new double[0], new double[0], 5).length);
+    }
+
+    @Test
+    void keepsSpikesAndEndpoints() {
+        int n = 1000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = 100;
+        }
+        y[123] = 1000;
+        y[777] = -500;
+
+        int[] selected = Lttb.select(x, y, 20);
+
+        assertEquals(20, selected.length);
+        assertEquals(0, selected[0]);
+        assertEquals(n - 1, selected[selected.length - 1]);
+        assertTrue(Arrays.stream(selected).anyMatch(i -> i == 123));
+        assertTrue(Arrays.stream(selected).anyMatch(i -> i == 777));
+    }
+
+    @Test
+    void selectsOnePointPerBucketInOrder() {
+        for (int round = 0; round < 2_000; round++) {
+            int n = 3 + random.nextInt(500);
+            int threshold = 3 + random.nextInt(n - 2);
+            double[] x = new double[n];
+            double[] y = new double[n];
+            double t = 0;
+            for (int i = 0; i < n; i++) {
+                t += 1 + random.nextInt(60);
+                x[i] = t;
+                y[i] = random.nextGaussian() * 1000;
+            }
+
+            int[] selected = Lttb.select(x, y, threshold);
+
+            assertEquals(Math.min(threshold, n), selected.length);
+            assertEquals(0, selected[0]);
+            assertEquals(n - 1, selected[selected.length - 1]);
+            if (threshold >= n) {
+                continue;
+            }
+            double bucketSize = (double) (n - 2) / (threshold - 2);
+            for (int bucket = 0; bucket < threshold - 2; bucket++) {
+                int index = selected[bucket + 1];
+                int start = (int) Math.floor(bucket * bucketSize) + 1;
+                int end = Math.min((int) Math.floor((bucket + 1) * bucketSize) + 1, n - 1);
+                assertTrue(index >= start && index < end, "n=" + n + " threshold=" + threshold + " bucket=" + bucket);
+                assertTrue(index > selected[bucket]);
+            }
+        }
+    }
+
+    @Test
+    void flatLineTakesFirstPointOfEachBucket() {
+        int n = 101;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = 100;
+        }
+
+        // 所有三角形面积为0时取每个桶的第一个点（桶大小为9.9）
+        int[] selected = Lttb.select(x, y, 12);
+
+        assertArrayEquals(new int[]{0, 1, 10, 20, 30, 40, 50, 60, 70, 80, 90, 100}, selected);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.backend.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankedIndexTest {
+
+    private final Random random = new Random(20240601L);
+
+    private final RankedIndex<Long> index = new RankedIndex<>();
+
+    @Test
+    void ranksByScoreThenKey() {
+        index.put(3L, new BigDecimal("10"));
+        index.put(1L, new BigDecimal("20"));
+        index.put(2L, new BigDecimal("10.00"));
+
+        assertEquals(List.of(2L, 3L, 1L), index.range(0, 10, false));
+        assertEquals(List.of(1L, 3L, 2L), index.range(0, 10, true));
+        assertEquals(0, index.rank(1L, true));
+        assertEquals(0, index.rank(2L, false));
+        assertEquals(1, index.rank(3L, false));
+    }
+
+    @Test
+    void updateMovesKey() {
+        index.put(1L, new BigDecimal("1"));
+        index.put(2L, new BigDecimal("2"));
+        index.put(1L, new BigDecimal("3"));
+
+        assertEquals(2, index.size());
+        assertEquals(List.of(1L, 2L), index.range(0, 2, true));
+        assertEquals(0, new BigDecimal("3").compareTo(index.getScore(1L)));
+    }
+
+    @Test
+    void nullScoreRemovesKey() {
+        index.put(1L, BigDecimal.ONE);
+        index.put(2L, BigDecimal.TEN);
+
+        index.put(1L, null);
+
+        assertEquals(1, index.size());
+        assertEquals(-1, index.rank(1L, false));
+        assertNull(index.getScore(1L));
+        assertFalse(index.remove(1L));
+        assertTrue(index.remove(2L));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void rangeHandlesBounds() {
+        for (long key = 0; key < 5; key++) {
+            index.put(key, BigDecimal.valueOf(key));
+        }
+
+        assertEquals(List.of(3L, 4L), index.range(3, 10, false));
+        assertEquals(List.of(1L, 0L), index.range(3, 10, true));
+        assertTrue(index.range(5, 1, false).isEmpty());
+        assertTrue(index.range(-1, 1, false).isEmpty());
+        assertTrue(index.range(0, 0, false).isEmpty());
+    }
+
+    @Test
+    void matchesSortedListUnderRandomUpdates() {
+        Map<Long, BigDecimal> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextInt(500);
+            if (random.nextInt(5) == 0) {
+                assertEquals(expected.remove(key) != null, index.remove(key));
+            } else {
+                // 分数取值范围较小，制造大量同分的情况
+                BigDecimal score = BigDecimal.valueOf(random.nextInt(50), random.nextInt(3));
+                expected.put(key, score);
+                index.put(key, score);
+            }
+            if (i % 500 == 0) {
+                assertMatches(expected);
+            }
+        }
+        assertMatches(expected);
+    }
+
+    private void assertMatches(Map<Long, BigDecimal> expected) {
+        List<Long> ascending = new ArrayList<>(expected.keySet());
+        ascending.sort(Comparator.comparing((Long key) -> expected.get(key)).thenComparing(key -> key));
+        List<Long> descending = new ArrayList<>(ascending);
+        Collections.reverse(descending);
+
+        assertEquals(ascending.size(), index.size());
+        assertEquals(ascending, index.range(0, ascending.size(), false));
+        assertEquals(descending, index.range(0, ascending.size(), true));
+        for (int i = 0; i < ascending.size(); i++) {
+            assertEquals(i, index.rank(ascending.get(i), false));
+            assertEquals(i, index.rank(descending.get(i), true));
+        }
+        int offset = ascending.isEmpty() ? 0 : random.nextInt(ascending.size());
+        int limit = 1 + random.nextInt(20);
+        assertEquals(ascending.subList(offset, Math.min(ascending.size(), offset + limit)),
+                index.range(offset, limit, false));
+        assertEquals(descending.subList(offset, Math.min(descending.size(), offset + limit)),
+                index.range(offset, limit, true));
+    }
+}
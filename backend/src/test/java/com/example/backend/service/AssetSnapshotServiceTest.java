@@ -0,0 +1,66 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.AssetHistory;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AssetSnapshotServiceTest {
+
+    private static final int MINUTE = AssetHistory.TIER_5M;
+    private static final int HOUR = AssetHistory.TIER_5M | AssetHistory.TIER_1H;
+    private static final int ALL = AssetHistory.TIER_5M | AssetHistory.TIER_1H | AssetHistory.TIER_1D;
+
+    @Test
+    void tickOfRoundsDownToFiveMinutes() {
+        assertEquals(at(10, 5), AssetSnapshotService.tickOf(LocalDateTime.of(2024, 6, 1, 10, 9, 59, 999_000_000)));
+        assertEquals(at(10, 10), AssetSnapshotService.tickOf(at(10, 10)));
+        assertEquals(at(0, 0), AssetSnapshotService.tickOf(LocalDateTime.of(2024, 6, 1, 0, 4, 30)));
+    }
+
+    @Test
+    void tiersAtDependsOnTick() {
+        assertEquals(MINUTE, AssetSnapshotService.tiersAt(at(10, 5)));
+        assertEquals(HOUR, AssetSnapshotService.tiersAt(at(10, 0)));
+        assertEquals(ALL, AssetSnapshotService.tiersAt(at(1, 0)));
+        assertEquals(MINUTE, AssetSnapshotService.tiersAt(at(1, 5)));
+    }
+
+    @Test
+    void consecutiveTicksOnlyUseTargetTick() {
+        assertEquals(MINUTE, AssetSnapshotService.tiersBetween(at(10, 0), at(10, 5)));
+        assertEquals(HOUR, AssetSnapshotService.tiersBetween(at(9, 55), at(10, 0)));
+        assertEquals(ALL, AssetSnapshotService.tiersBetween(at(0, 55), at(1, 0)));
+    }
+
+    @Test
+    void missedTicksAreMerged() {
+        // 10:00 这一次被跳过，10:10 补写时需要带上小时层级
+        assertEquals(HOUR, AssetSnapshotService.tiersBetween(at(9, 55), at(10, 10)));
+        // 01:00 被跳过时日层级也要补上
+        assertEquals(ALL, AssetSnapshotService.tiersBetween(at(0, 50), at(1, 20)));
+        // 起点本身不计入 (from, to]
+        assertEquals(MINUTE, AssetSnapshotService.tiersBetween(at(10, 0), at(10, 30)));
+    }
+
+    @Test
+    void firstRunOrClockGoingBackUsesTargetTick() {
+        assertEquals(HOUR, AssetSnapshotService.tiersBetween(null, at(10, 0)));
+        assertEquals(MINUTE, AssetSnapshotService.tiersBetween(at(10, 5), at(10, 5)));
+        assertEquals(MINUTE, AssetSnapshotService.tiersBetween(at(11, 0), at(10, 5)));
+    }
+
+    @Test
+    void gapOfADayOrMoreWritesAllTiers() {
+        assertEquals(ALL, AssetSnapshotService.tiersBetween(at(10, 5), at(10, 5).plusDays(1)));
+        assertEquals(ALL, AssetSnapshotService.tiersBetween(at(10, 5), at(10, 5).plusDays(3)));
+        // 不足一天且没有经过01:00
+        assertEquals(HOUR, AssetSnapshotService.tiersBetween(at(2, 0), at(23, 55)));
+    }
+
+    private static LocalDateTime at(int hour, int minute) {
+        return LocalDateTime.of(2024, 6, 1, hour, minute);
+    }
+}
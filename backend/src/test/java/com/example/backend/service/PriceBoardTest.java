@@ -0,0 +1,118 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Cryptocurrency;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceBoardTest {
+
+    private final List<Object> events = new ArrayList<>();
+
+    private final PriceBoard board = new PriceBoard(events::add, 3);
+
+    @Test
+    void changesSinceReturnsOnlyChangedQuotes() {
+        board.replaceAll(List.of(crypto("BTC", "60000"), crypto("ETH", "3000")));
+        long since = board.getVersion();
+
+        board.putAll(List.of(crypto("ETH", "3100")));
+
+        PriceBoard.Delta delta = board.changesSince(since);
+        assertFalse(delta.full());
+        assertEquals(since + 1, delta.version());
+        assertEquals(List.of("ETH"), symbols(delta));
+        assertTrue(delta.removed().isEmpty());
+    }
+
+    @Test
+    void unchangedMarketDataKeepsVersion() {
+        board.replaceAll(List.of(crypto("BTC", "60000")));
+        long version = board.getVersion();
+
+        // 数值相同、精度不同也视为未变化
+        board.putAll(List.of(crypto("BTC", "60000.00")));
+
+        assertEquals(version, board.getVersion());
+        assertEquals(1, events.size());
+        assertTrue(board.changesSince(version).isEmpty());
+    }
+
+    @Test
+    void changesSinceReportsRemovedSymbols() {
+        board.replaceAll(List.of(crypto("BTC", "60000"), crypto("ETH", "3000")));
+        long since = board.getVersion();
+
+        board.replaceAll(List.of(crypto("BTC", "60000")));
+
+        PriceBoard.Delta delta = board.changesSince(since);
+        assertFalse(delta.full());
+        assertTrue(delta.quotes().isEmpty());
+        assertEquals(List.of("ETH"), delta.removed());
+    }
+
+    @Test
+    void readdedSymbolIsNoLongerRemoved() {
+        board.replaceAll(List.of(crypto("BTC", "60000"), crypto("ETH", "3000")));
+        long since = board.getVersion();
+        board.replaceAll(List.of(crypto("BTC", "60000")));
+        board.putAll(List.of(crypto("ETH", "3000")));
+
+        PriceBoard.Delta delta = board.changesSince(since);
+        assertEquals(List.of("ETH"), symbols(delta));
+        assertTrue(delta.removed().isEmpty());
+    }
+
+    @Test
+    void sinceAheadOfBoardReturnsFullSnapshot() {
+        board.replaceAll(List.of(crypto("BTC", "60000")));
+
+        PriceBoard.Delta delta = board.changesSince(board.getVersion() + 100);
+        assertTrue(delta.full());
+        assertEquals(List.of("BTC"), symbols(delta));
+    }
+
+    @Test
+    void sinceBeforePrunedTombstonesReturnsFullSnapshot() {
+        board.replaceAll(List.of(crypto("BTC", "60000"), crypto("ETH", "3000")));
+        long beforeRemoval = board.getVersion();
+        board.replaceAll(List.of(crypto("BTC", "60000")));
+        long removedAt = board.getVersion();
+
+        // 保留3个版本：移除记录在第3次变化后被清理
+        board.putAll(List.of(crypto("BTC", "60001")));
+        board.putAll(List.of(crypto("BTC", "60002")));
+        assertEquals(List.of("ETH"), board.changesSince(beforeRemoval).removed());
+        board.putAll(List.of(crypto("BTC", "60003")));
+
+        assertTrue(board.current().removed().isEmpty());
+        assertEquals(removedAt, board.current().removedFloor());
+        PriceBoard.Delta stale = board.changesSince(beforeRemoval);
+        assertTrue(stale.full());
+        assertEquals(List.of("BTC"), symbols(stale));
+
+        // 清理版本之后的增量请求不受影响
+        PriceBoard.Delta recent = board.changesSince(removedAt);
+        assertFalse(recent.full());
+        assertEquals(List.of("BTC"), symbols(recent));
+    }
+
+    private static List<String> symbols(PriceBoard.Delta delta) {
+        return delta.quotes().stream().map(PriceQuote::symbol).toList();
+    }
+
+    private static Cryptocurrency crypto(String symbol, String price) {
+        Cryptocurrency crypto = new Cryptocurrency();
+        crypto.setSymbol(symbol);
+        crypto.setName(symbol);
+        crypto.setPrice(new BigDecimal(price));
+        crypto.setPriceCurrency("USD");
+        return crypto;
+    }
+}
@@ -29,12 +29,37 @@ export const PriceProvider = ({ children }) => {
     }
   };
 
-  // 组件挂载时加载价格数据
+  // 合并推送过来的价格
+  const mergePrices = (items) => {
+    setPriceData(prev => {
+      const next = { ...prev };
+      items.forEach(item => {
+        next[item.symbol] = item.price;
+      });
+      return next;
+    });
+  };
+
+  // 组件挂载时加载价格数据，之后通过服务端推送（SSE）接收变化
   useEffect(() => {
     loadPriceData();
-    // 每30秒自动刷新价格数据
-    const interval = setInterval(loadPriceData, 30000);
-    return () => clearInterval(interval);
+
+    // 浏览器不支持EventSource时退回每30秒轮询
+    if (typeof EventSource === 'undefined') {
+      const interval = setInterval(loadPriceData, 30000);
+      return () => clearInterval(interval);
+    }
+
+    const baseURL = import.meta.env.VITE_API_BASE_URL || '/api';
+    const source = new EventSource(`${baseURL}/crypto/prices/stream`);
+    source.addEventListener('snapshot', (event) => {
+      mergePrices(JSON.parse(event.data).data || []);
+    });
+    source.addEventListener('prices', (event) => {
+      mergePrices(JSON.parse(event.data));
+    });
+    // 连接断开时EventSource会自动重连，这里不需要额外处理
+    return () => source.close();
   }, []);
 
   // 手动刷新价格数据
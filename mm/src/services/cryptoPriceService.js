@@ -27,6 +27,19 @@ export const fetchCryptoPriceDetail = async (symbol) => {
   }
 };
 
+// 批量获取多个数字货币的价格（一次请求），返回找到的报价列表
+export const fetchCryptoQuotes = async (symbols) => {
+  try {
+    const response = await request.get('/crypto/prices/quotes', {
+      params: { symbols: symbols.join(',') }
+    });
+    return response;
+  } catch (error) {
+    console.error('批量获取价格失败:', error);
+    return [];
+  }
+};
+
 // 更新单个数字货币价格
 export const updateCryptocurrencyPrice = async (symbol, price) => {
   try {